@@ -0,0 +1,77 @@
+package dev.enola.be.io;
+
+import java.time.Duration;
+
+/**
+ * What {@link NonBlockingLineWriter#println(Object)} does with a line when its buffer is full.
+ *
+ * <p>Lines which are dropped are counted, see {@link NonBlockingLineWriter#dropped()}, and the
+ * writer prints how many were dropped (instead of them) when it catches up again.
+ */
+public final class Backpressure {
+
+    enum Kind {
+        BLOCK,
+        DROP_NEWEST,
+        DROP_OLDEST,
+        SAMPLE
+    }
+
+    /** Drop the line being printed, and keep the older ones; the default. */
+    public static final Backpressure DROP_NEWEST = new Backpressure(Kind.DROP_NEWEST, null, 1);
+
+    /** Drop the oldest line in the buffer to make room, so that the most recent output is kept. */
+    public static final Backpressure DROP_OLDEST = new Backpressure(Kind.DROP_OLDEST, null, 1);
+
+    private final Kind kind;
+    private final Duration timeout;
+    private final int every;
+
+    private Backpressure(Kind kind, Duration timeout, int every) {
+        this.kind = kind;
+        this.timeout = timeout;
+        this.every = every;
+    }
+
+    /**
+     * Block the printing thread until there is room, but only for up to the timeout; the line is
+     * dropped if there still is no room after that. Use a long timeout for output which must never
+     * be lost. The lines of each thread are still written in the order it printed them; but lines
+     * which other threads print while it waits can get ahead of its line.
+     */
+    public static Backpressure block(Duration timeout) {
+        if (timeout.isNegative()) throw new IllegalArgumentException("timeout is negative");
+        return new Backpressure(Kind.BLOCK, timeout, 1);
+    }
+
+    /**
+     * Of the lines which do not fit, keep every Nth (by dropping the oldest line in the buffer to
+     * make room for it), and drop the others; so that a sample of the output is kept while
+     * producers are faster than the delegate.
+     */
+    public static Backpressure sample(int every) {
+        if (every < 1) throw new IllegalArgumentException("every must be positive: " + every);
+        return new Backpressure(Kind.SAMPLE, null, every);
+    }
+
+    Kind kind() {
+        return kind;
+    }
+
+    Duration timeout() {
+        return timeout;
+    }
+
+    int every() {
+        return every;
+    }
+
+    @Override
+    public String toString() {
+        return switch (kind) {
+            case BLOCK -> "Backpressure{block " + timeout + "}";
+            case SAMPLE -> "Backpressure{sample every " + every + "}";
+            default -> "Backpressure{" + kind.name().toLowerCase().replace('_', ' ') + "}";
+        };
+    }
+}
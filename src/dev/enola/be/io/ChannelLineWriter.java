@@ -0,0 +1,240 @@
+package dev.enola.be.io;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link LineWriter} which encodes lines straight into a (reused) {@link ByteBuffer}, and writes
+ * that to a {@link WritableByteChannel}, such as a {@link FileChannel}.
+ *
+ * <p>Printed lines are only kept (as the objects they are, not turned into strings yet) until
+ * either there are maxLines of them, or the first one of them was printed more than maxDelay ago;
+ * the thread which printed the line that made them due then writes all of them at once, including
+ * those which other threads print while it does so (a.k.a. "group commit"). Lines are otherwise
+ * only written on {@link #flush()} or {@link #close()}, there is no background thread; so callers
+ * which stop printing for a while should flush (as e.g. {@link NonBlockingLineWriter} does).
+ *
+ * <p>Characters which cannot be encoded in the charset are replaced, like {@link
+ * java.io.PrintStream} does.
+ */
+public final class ChannelLineWriter implements LineWriter, AutoCloseable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final int DEFAULT_MAX_LINES = 1024;
+    private static final Duration DEFAULT_MAX_DELAY = Duration.ofMillis(100);
+
+    private final /*TODO @Nullable*/ Path file;
+    private final int maxLines;
+    private final long maxDelayNanos;
+
+    // Guarded by this
+    private ArrayList<Object> pending = new ArrayList<>();
+    private long pendingSinceNanos;
+
+    // Guarded by writeLock
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private WritableByteChannel channel;
+    private final CharsetEncoder encoder;
+    private final ByteBuffer buffer;
+    private final CharBuffer lineSeparator = CharBuffer.wrap(System.lineSeparator());
+    private ArrayList<Object> spare = new ArrayList<>();
+
+    /** Appends to (or creates) a file, with default buffer size, max lines, and max delay. */
+    public static ChannelLineWriter append(Path file, Charset charset) throws IOException {
+        return new ChannelLineWriter(
+                open(file),
+                file,
+                charset,
+                DEFAULT_BUFFER_SIZE,
+                DEFAULT_MAX_LINES,
+                DEFAULT_MAX_DELAY);
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, CREATE, WRITE, APPEND);
+    }
+
+    /**
+     * Writes to the standard output of the process, bypassing {@link System#out} (and its lock),
+     * with its charset. Lines printed to System.out directly may thus interleave with these.
+     * Closing this only flushes it, it never closes stdout.
+     */
+    public static ChannelLineWriter stdout() {
+        return new ChannelLineWriter(
+                new StdoutChannel(),
+                null,
+                System.out.charset(),
+                DEFAULT_BUFFER_SIZE,
+                DEFAULT_MAX_LINES,
+                DEFAULT_MAX_DELAY);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param channel where to write the encoded lines to
+     * @param charset how to encode the lines
+     * @param bufferSize size in bytes of the buffer to encode into; bigger batches are written to
+     *     the channel in several parts
+     * @param maxLines how many lines to keep before writing them
+     * @param maxDelay how long to keep lines (at most) before writing them
+     */
+    public ChannelLineWriter(
+            WritableByteChannel channel,
+            Charset charset,
+            int bufferSize,
+            int maxLines,
+            Duration maxDelay) {
+        this(channel, null, charset, bufferSize, maxLines, maxDelay);
+    }
+
+    private ChannelLineWriter(
+            WritableByteChannel channel,
+            /*TODO @Nullable*/ Path file,
+            Charset charset,
+            int bufferSize,
+            int maxLines,
+            Duration maxDelay) {
+        if (bufferSize < 16) throw new IllegalArgumentException("bufferSize must be >= 16");
+        if (maxLines < 1) throw new IllegalArgumentException("maxLines must be positive");
+        if (maxDelay.isNegative()) throw new IllegalArgumentException("maxDelay is negative");
+        this.channel = channel;
+        this.file = file;
+        this.maxLines = maxLines;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.encoder =
+                charset.newEncoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    @Override
+    public void println(Object line) throws IOException {
+        boolean due;
+        synchronized (this) {
+            var now = System.nanoTime();
+            if (pending.isEmpty()) pendingSinceNanos = now;
+            pending.add(line);
+            due = pending.size() >= maxLines || now - pendingSinceNanos >= maxDelayNanos;
+        }
+        if (due) flush();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writeLock.lock();
+        try {
+            ArrayList<Object> lines;
+            synchronized (this) {
+                if (pending.isEmpty()) return;
+                lines = pending;
+                pending = spare;
+            }
+            try {
+                for (var line : lines) {
+                    encode(CharBuffer.wrap(String.valueOf(line)));
+                    encode(lineSeparator.rewind());
+                }
+                write();
+            } finally {
+                buffer.clear();
+                lines.clear();
+                spare = lines;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void encode(CharBuffer chars) throws IOException {
+        encoder.reset();
+        CoderResult result;
+        do {
+            result = encoder.encode(chars, buffer, true);
+            if (result.isOverflow()) write();
+        } while (result.isOverflow());
+        while (encoder.flush(buffer).isOverflow()) write();
+    }
+
+    // An interruptible channel, like FileChannel, is closed if the thread which writes to it is
+    // interrupted; but e.g. a cancelled task, or NonBlockingLineWriter shutting down, must not
+    // close it for everyone. So the interrupt is cleared while writing, and restored afterwards;
+    // and if another thread interrupts meanwhile, the file is opened again, and the write retried.
+    private void write() throws IOException {
+        buffer.flip();
+        var interrupted = Thread.interrupted();
+        try {
+            while (buffer.hasRemaining()) {
+                try {
+                    channel.write(buffer);
+                } catch (ClosedByInterruptException e) {
+                    if (file == null) throw e;
+                    interrupted |= Thread.interrupted();
+                    channel = open(file);
+                }
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            writeLock.lock();
+            try {
+                channel.close();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    // Writes to file descriptor 1 with (uninterruptible) FileOutputStream.write(), and never
+    // closes it; unlike its FileChannel, which closes fd 1 when interrupted, or closed.
+    private static final class StdoutChannel implements WritableByteChannel {
+        private final FileOutputStream out = new FileOutputStream(FileDescriptor.out);
+        private final byte[] bytes = new byte[8192];
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            var written = src.remaining();
+            while (src.hasRemaining()) {
+                var length = Math.min(bytes.length, src.remaining());
+                src.get(bytes, 0, length);
+                out.write(bytes, 0, length);
+            }
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {}
+    }
+}
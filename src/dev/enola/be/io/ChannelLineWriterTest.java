@@ -0,0 +1,148 @@
+package dev.enola.be.io;
+
+import static ch.vorburger.test.Assert.assertTrue;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+public class ChannelLineWriterTest {
+
+    private static final String NL = System.lineSeparator();
+
+    public static void main(String[] args) throws Exception {
+        testMaxLines();
+        testMaxDelay();
+        testEncoding();
+        testLazyToString();
+        testAppendConcurrently();
+        testInterrupted();
+    }
+
+    private static void testMaxLines() throws Exception {
+        var bytes = new ByteArrayOutputStream();
+        var channel = Channels.newChannel(bytes);
+        try (var writer = new ChannelLineWriter(channel, UTF_8, 16, 3, Duration.ofDays(1))) {
+            writer.println("a");
+            writer.println("b");
+            assertTrue(bytes.size() == 0, "Should not have written yet");
+            writer.println("c");
+            assertTrue(bytes.toString(UTF_8).equals("a" + NL + "b" + NL + "c" + NL), "3 lines");
+            writer.println("d");
+            writer.flush();
+            assertTrue(bytes.toString(UTF_8).endsWith("c" + NL + "d" + NL), "flushed");
+        }
+    }
+
+    private static void testMaxDelay() throws Exception {
+        var bytes = new ByteArrayOutputStream();
+        var channel = Channels.newChannel(bytes);
+        var writer = new ChannelLineWriter(channel, UTF_8, 16, 1000, Duration.ofMillis(10));
+        writer.println("a");
+        assertTrue(bytes.size() == 0, "Should not have written yet");
+        Thread.sleep(20);
+        writer.println("b");
+        assertTrue(bytes.toString(UTF_8).equals("a" + NL + "b" + NL), "Should have written");
+    }
+
+    // Lines much longer than the buffer, and unmappable characters
+    private static void testEncoding() throws Exception {
+        var line = "Grüezi ※ ".repeat(100);
+        for (var charset : new Charset[] {UTF_8, ISO_8859_1}) {
+            var bytes = new ByteArrayOutputStream();
+            try (var writer =
+                    new ChannelLineWriter(
+                            Channels.newChannel(bytes), charset, 16, 10, Duration.ofDays(1))) {
+                writer.println(line);
+            }
+            var expected = charset == UTF_8 ? line : line.replace('※', '?');
+            assertTrue(bytes.toString(charset).equals(expected + NL), charset.toString());
+        }
+    }
+
+    private static void testLazyToString() throws Exception {
+        var calls = new int[1];
+        var line =
+                new Object() {
+                    @Override
+                    public String toString() {
+                        calls[0]++;
+                        return "lazy";
+                    }
+                };
+        var bytes = new ByteArrayOutputStream();
+        var channel = Channels.newChannel(bytes);
+        var writer = new ChannelLineWriter(channel, UTF_8, 16, 10, Duration.ofDays(1));
+        writer.println(line);
+        assertTrue(calls[0] == 0, "Should not have called toString() yet");
+        writer.flush();
+        assertTrue(calls[0] == 1, "Should have called toString() once");
+        assertTrue(bytes.toString(UTF_8).equals("lazy" + NL), "lazy");
+    }
+
+    private static void testAppendConcurrently() throws Exception {
+        var file = Files.createTempFile("ChannelLineWriterTest", ".log");
+        try {
+            Files.writeString(file, "existing" + NL);
+            try (var writer = ChannelLineWriter.append(file, UTF_8)) {
+                var threads = new ArrayList<Thread>();
+                for (int t = 0; t < 4; t++) {
+                    var prefix = "t" + t + "-";
+                    threads.add(
+                            Thread.ofPlatform()
+                                    .start(
+                                            () -> {
+                                                try {
+                                                    for (int i = 0; i < 10_000; i++)
+                                                        writer.println(prefix + i);
+                                                } catch (Exception e) {
+                                                    throw new RuntimeException(e);
+                                                }
+                                            }));
+                }
+                for (var thread : threads) thread.join();
+            }
+            var lines = Files.readAllLines(file, UTF_8);
+            assertTrue(lines.get(0).equals("existing"), "Should append");
+            assertTrue(lines.size() == 1 + 4 * 10_000, "lines: " + lines.size());
+            assertTrue(new HashSet<>(lines).size() == lines.size(), "Should be unique");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    // A cancelled task must not close the file (or stdout) for everyone else
+    private static void testInterrupted() throws Exception {
+        var file = Files.createTempFile("ChannelLineWriterTest", ".log");
+        try {
+            try (var writer = ChannelLineWriter.append(file, UTF_8)) {
+                Thread.currentThread().interrupt();
+                writer.println("interrupted");
+                writer.flush();
+                assertTrue(Thread.interrupted(), "Should still be interrupted");
+                writer.println("after");
+            }
+            var lines = Files.readAllLines(file, UTF_8);
+            assertTrue(lines.equals(List.of("interrupted", "after")), "lines: " + lines);
+        } finally {
+            Files.delete(file);
+        }
+
+        var stdout = ChannelLineWriter.stdout();
+        Thread.currentThread().interrupt();
+        stdout.println("ChannelLineWriterTest: printed while interrupted");
+        stdout.flush();
+        assertTrue(Thread.interrupted(), "Should still be interrupted");
+        stdout.close();
+        System.out.println("ChannelLineWriterTest: printed after");
+        assertTrue(!System.out.checkError(), "stdout should still be open");
+    }
+}
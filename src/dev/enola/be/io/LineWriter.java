@@ -5,4 +5,11 @@ import java.io.IOException;
 public interface LineWriter {
 
     void println(Object line) throws IOException;
+
+    /**
+     * Writes out lines which the implementation buffered, if any. Callers which print many lines
+     * at once, such as {@link NonBlockingLineWriter}, call this once after all of them, instead of
+     * having each line written out separately. Default does nothing.
+     */
+    default void flush() throws IOException {}
 }
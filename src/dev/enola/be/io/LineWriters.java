@@ -1,5 +1,6 @@
 package dev.enola.be.io;
 
+import java.io.Flushable;
 import java.io.IOException;
 
 public final class LineWriters {
@@ -14,6 +15,11 @@ public final class LineWriters {
             public void println(Object line) throws IOException {
                 appendable.append(line.toString()).append(System.lineSeparator());
             }
+
+            @Override
+            public void flush() throws IOException {
+                if (appendable instanceof Flushable flushable) flushable.flush();
+            }
         };
     }
 
@@ -2,51 +2,194 @@ package dev.enola.be.io;
 
 import dev.enola.be.task.Status;
 import dev.enola.be.task.TaskWithoutInputOutput;
+import dev.enola.common.concurrent.MpscRingBuffer;
 
 import java.io.IOException;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Task which writes lines that any number of other tasks {@link #println(Object)} to a delegate.
+ *
+ * <p>Lines are put into a lock-free {@link MpscRingBuffer}; what happens if that is full depends
+ * on the {@link Backpressure} (by default, they are dropped). This task drains the lines in
+ * batches, and {@link LineWriter#flush()}es the delegate once after each batch.
+ *
+ * <p>How many lines were {@link #offered()}, {@link #written()} and {@link #dropped()} is counted,
+ * e.g. to choose a capacity for the buffer.
+ */
 public class NonBlockingLineWriter extends TaskWithoutInputOutput implements LineWriter {
 
     private final LineWriter delegate;
-    private final BlockingQueue<Object> queue;
-    private volatile boolean overflow;
+    private final MpscRingBuffer<Object> buffer;
+    private final Backpressure backpressure;
+
+    private final LongAdder offered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong overflows = new AtomicLong();
+    private volatile long written;
+
+    // Held while taking lines from the buffer, by this task or by producers which drop the oldest;
+    // the buffer only allows one consumer at a time. Unless producers ever take lines (or wait for
+    // room), this task is the only consumer, and doesn't need to take it.
+    private final boolean locking;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final ArrayList<Object> batch = new ArrayList<>();
+
+    private volatile Thread consumer;
+    private volatile boolean parked;
 
     public NonBlockingLineWriter(int queueCapacity, LineWriter delegate) {
+        this(queueCapacity, Backpressure.DROP_NEWEST, delegate);
+    }
+
+    public NonBlockingLineWriter(int queueCapacity, Backpressure backpressure, LineWriter delegate) {
         this.delegate = delegate;
-        this.queue = new ArrayBlockingQueue<>(queueCapacity, false);
+        this.buffer = new MpscRingBuffer<>(queueCapacity);
+        this.backpressure = backpressure;
+        this.locking = backpressure.kind() != Backpressure.Kind.DROP_NEWEST;
     }
 
     @Override
     public void println(Object line) throws IOException {
         if (status() != Status.IN_PROGRESS) throw new IllegalStateException();
-        if (!queue.offer(line)) overflow = true;
+        offered.increment();
+        if (buffer.offer(line) || overflow(line)) {
+            if (parked) LockSupport.unpark(consumer);
+        } else dropped.increment();
     }
 
-    @Override
-    protected void executeIt() throws Exception {
+    // Returns whether the line was (eventually) added after all
+    private boolean overflow(Object line) throws IOException {
+        return switch (backpressure.kind()) {
+            case DROP_NEWEST -> false;
+            case DROP_OLDEST -> dropOldest(line);
+            case SAMPLE ->
+                    overflows.incrementAndGet() % backpressure.every() == 0 && dropOldest(line);
+            case BLOCK -> block(line);
+        };
+    }
+
+    private boolean dropOldest(Object line) {
+        lock.lock();
         try {
-            while (!Thread.currentThread().isInterrupted()) {
-                if (overflow) {
-                    // https://en.wikipedia.org/wiki/Ellipsis
-                    delegate.println("[… output ... ※ ... truncated …]");
-                    overflow = false;
-                }
-
-                // take() will block and wait efficiently until a message is available.
-                Object line = queue.take();
-                delegate.println(line);
+            while (!buffer.offer(line)) {
+                if (buffer.drain(_ -> dropped.increment(), 1) == 0) Thread.onSpinWait();
             }
-        } catch (InterruptedException e) {
-            // We've been interrupted, which is the signal to shut down.
-            // But before we exit, let's process any remaining messages in the queue.
-            Object line;
-            while ((line = queue.poll()) != null) {
-                delegate.println(line);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean block(Object line) throws IOException {
+        var nanos = backpressure.timeout().toNanos();
+        lock.lock();
+        try {
+            while (!buffer.offer(line)) {
+                if (nanos <= 0) return false;
+                if (parked) LockSupport.unpark(consumer);
+                nanos = notFull.awaitNanos(nanos);
             }
-            // Re-set the interrupt flag to be a good citizen.
+            return true;
+        } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to print");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** How many lines were printed so far, incl. those which were dropped. */
+    public long offered() {
+        return offered.sum();
+    }
+
+    /** How many lines were written to the delegate so far. */
+    public long written() {
+        return written;
+    }
+
+    /** How many lines were dropped so far, because the buffer was full. */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    protected void executeIt() throws Exception {
+        consumer = Thread.currentThread();
+        long reported = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            reported = reportDropped(reported);
+            if (drain() > 0) continue;
+
+            // Producers check this after each offer(), and unpark us if it's set; so it must be
+            // set before checking once more whether the buffer is (still) empty.
+            parked = true;
+            if (isEmpty()) LockSupport.park(this);
+            parked = false;
+        }
+
+        // We've been interrupted, which is the signal to shut down.
+        // But before we exit, let's write any remaining lines in the buffer; without the interrupt
+        // flag set meanwhile, as the delegate may be interruptible, and restore it afterwards.
+        Thread.interrupted();
+        try {
+            while (drain() > 0) {}
+            reportDropped(reported);
+        } finally {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long reportDropped(long reported) throws IOException {
+        var total = dropped.sum();
+        if (total > reported) {
+            // https://en.wikipedia.org/wiki/Ellipsis
+            delegate.println("[… output ... ※ " + (total - reported) + " lines truncated …]");
+            delegate.flush();
+        }
+        return total;
+    }
+
+    private boolean isEmpty() {
+        if (!locking) return buffer.isEmpty();
+        lock.lock();
+        try {
+            return buffer.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int drain() throws IOException {
+        int drained;
+        if (!locking) drained = buffer.drain(batch::add, buffer.capacity());
+        else {
+            lock.lock();
+            try {
+                drained = buffer.drain(batch::add, buffer.capacity());
+                if (drained > 0 && backpressure.kind() == Backpressure.Kind.BLOCK)
+                    notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (drained == 0) return 0;
+
+        try {
+            for (var line : batch) delegate.println(line);
+            delegate.flush();
+            written += drained;
+        } finally {
+            batch.clear();
         }
+        return drained;
     }
 }
@@ -0,0 +1,57 @@
+package dev.enola.be.io;
+
+import static dev.enola.be.io.Backpressure.DROP_NEWEST;
+import static dev.enola.be.io.Backpressure.DROP_OLDEST;
+
+import dev.enola.be.task.Status;
+import dev.enola.be.task.TaskExecutor;
+import dev.enola.common.bench.Harness;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Benchmark of {@link NonBlockingLineWriter#println(Object)}, see {@link Harness} for arguments.
+ *
+ * <p>Lines which do not fit into its buffer are dropped, so this prints how many of them actually
+ * made it through to the (counting, but otherwise no-op) delegate, and how many were dropped.
+ */
+public class NonBlockingLineWriterBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        var harness = new Harness(args);
+        for (var capacity : new int[] {16, 1024})
+            for (var backpressure : new Backpressure[] {DROP_NEWEST, DROP_OLDEST})
+                run(harness, capacity, backpressure);
+    }
+
+    private static void run(Harness harness, int capacity, Backpressure backpressure)
+            throws Exception {
+        var name =
+                "NonBlockingLineWriter.println(capacity=" + capacity + ", " + backpressure + ")";
+        for (var threads : harness.threads()) {
+            var written = new LongAdder();
+            var writer =
+                    new NonBlockingLineWriter(capacity, backpressure, _ -> written.increment());
+            try (var executor = new TaskExecutor()) {
+                executor.async(writer);
+                while (writer.status() == Status.PENDING) Thread.onSpinWait();
+
+                var line = "Hello, world";
+                var result =
+                        harness.run(
+                                name,
+                                threads,
+                                () -> {
+                                    writer.println(line);
+                                    return 1;
+                                });
+                if (result == null) continue;
+                System.out.println(
+                        "  written (incl. warm-up): "
+                                + written.sum()
+                                + ", dropped: "
+                                + writer.dropped());
+            }
+        }
+    }
+}
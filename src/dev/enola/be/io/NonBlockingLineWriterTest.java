@@ -0,0 +1,157 @@
+package dev.enola.be.io;
+
+import static ch.vorburger.test.Assert.assertTrue;
+
+import dev.enola.be.task.Status;
+import dev.enola.be.task.TaskExecutor;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class NonBlockingLineWriterTest {
+
+    public static void main(String[] args) throws Exception {
+        testDropNewest();
+        testDropOldest();
+        testSample();
+        testBlock();
+        testBlockTimeout();
+        testFinalDrainNotInterrupted();
+    }
+
+    /**
+     * Delegate which blocks on the first line until released, so that the buffer can be filled
+     * deterministically meanwhile.
+     */
+    private static class BlockingDelegate implements LineWriter {
+        final List<Object> lines = new CopyOnWriteArrayList<>();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void println(Object line) throws IOException {
+            if (lines.isEmpty()) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            lines.add(line);
+        }
+    }
+
+    private static List<Object> run(Backpressure backpressure, int... lines) throws Exception {
+        var delegate = new BlockingDelegate();
+        var writer = new NonBlockingLineWriter(2, backpressure, delegate);
+        try (var executor = new TaskExecutor()) {
+            executor.async(writer);
+            while (writer.status() == Status.PENDING) Thread.onSpinWait();
+
+            writer.println(0);
+            assertTrue(delegate.started.await(5, TimeUnit.SECONDS), "Not started");
+            for (var line : lines) writer.println(line);
+            delegate.release.countDown();
+
+            awaitWritten(writer, 1 + lines.length - writer.dropped());
+            assertTrue(writer.offered() == 1 + lines.length, "offered: " + writer.offered());
+            writer.cancel();
+        }
+        return delegate.lines.stream().filter(line -> line instanceof Integer).toList();
+    }
+
+    private static void awaitWritten(NonBlockingLineWriter writer, long expected)
+            throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (writer.written() < expected) {
+            assertTrue(System.nanoTime() < deadline, "written: " + writer.written());
+            Thread.sleep(1);
+        }
+    }
+
+    private static void testDropNewest() throws Exception {
+        var lines = run(Backpressure.DROP_NEWEST, 1, 2, 3, 4);
+        assertTrue(lines.equals(List.of(0, 1, 2)), "Lines: " + lines);
+    }
+
+    private static void testDropOldest() throws Exception {
+        var lines = run(Backpressure.DROP_OLDEST, 1, 2, 3, 4);
+        assertTrue(lines.equals(List.of(0, 3, 4)), "Lines: " + lines);
+    }
+
+    // 3 and 5 are dropped, 4 and 6 are kept by dropping 1 and 2
+    private static void testSample() throws Exception {
+        var lines = run(Backpressure.sample(2), 1, 2, 3, 4, 5, 6);
+        assertTrue(lines.equals(List.of(0, 4, 6)), "Lines: " + lines);
+    }
+
+    private static void testBlock() throws Exception {
+        var delegate = new BlockingDelegate();
+        var writer =
+                new NonBlockingLineWriter(2, Backpressure.block(Duration.ofMinutes(1)), delegate);
+        try (var executor = new TaskExecutor()) {
+            executor.async(writer);
+            while (writer.status() == Status.PENDING) Thread.onSpinWait();
+
+            writer.println(0);
+            assertTrue(delegate.started.await(5, TimeUnit.SECONDS), "Not started");
+            var producer =
+                    Thread.ofPlatform()
+                            .start(
+                                    () -> {
+                                        try {
+                                            for (int i = 1; i < 100; i++) writer.println(i);
+                                        } catch (IOException e) {
+                                            throw new RuntimeException(e);
+                                        }
+                                    });
+            Thread.sleep(50);
+            assertTrue(producer.isAlive(), "Producer should be blocked");
+            delegate.release.countDown();
+            producer.join();
+
+            awaitWritten(writer, 100);
+            assertTrue(writer.dropped() == 0, "dropped: " + writer.dropped());
+            for (int i = 0; i < 100; i++)
+                assertTrue(delegate.lines.get(i).equals(i), "line " + i);
+            writer.cancel();
+        }
+    }
+
+    private static void testBlockTimeout() throws Exception {
+        var lines = run(Backpressure.block(Duration.ofMillis(10)), 1, 2, 3);
+        assertTrue(lines.equals(List.of(0, 1, 2)), "Lines: " + lines);
+    }
+
+    // Remaining lines are written after the writer was cancelled, e.g. to an interruptible channel
+    private static void testFinalDrainNotInterrupted() throws Exception {
+        var interrupted = new CopyOnWriteArrayList<Boolean>();
+        var delegate =
+                new BlockingDelegate() {
+                    @Override
+                    public void println(Object line) throws IOException {
+                        super.println(line);
+                        interrupted.add(Thread.currentThread().isInterrupted());
+                    }
+                };
+        var writer = new NonBlockingLineWriter(10, delegate);
+        try (var executor = new TaskExecutor()) {
+            executor.async(writer);
+            while (writer.status() == Status.PENDING) Thread.onSpinWait();
+
+            writer.println(0);
+            assertTrue(delegate.started.await(5, TimeUnit.SECONDS), "Not started");
+            writer.println(1);
+            writer.println(2);
+            writer.cancel(); // interrupts the delegate, which is blocked on line 0
+            awaitWritten(writer, 3);
+        }
+        assertTrue(delegate.lines.equals(List.of(0, 1, 2)), "Lines: " + delegate.lines);
+        assertTrue(interrupted.equals(List.of(true, false, false)), "Interrupted: " + interrupted);
+    }
+}
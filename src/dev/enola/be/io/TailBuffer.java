@@ -0,0 +1,70 @@
+package dev.enola.be.io;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * {@link LineWriter} which keeps only the last N lines printed to it, in a ring; each as its UTF-8
+ * bytes, which (for mostly ASCII output) take half the memory of a String's chars.
+ */
+public final class TailBuffer implements LineWriter {
+
+    // Guarded by this
+    private final byte[][] lines;
+    private long total;
+
+    public TailBuffer(int maxLines) {
+        if (maxLines < 1) throw new IllegalArgumentException("maxLines must be positive");
+        this.lines = new byte[maxLines][];
+    }
+
+    @Override
+    public void println(Object line) {
+        var bytes = String.valueOf(line).getBytes(UTF_8);
+        synchronized (this) {
+            lines[(int) (total % lines.length)] = bytes;
+            total++;
+        }
+    }
+
+    /** How many lines were printed in total, incl. those which are no longer kept. */
+    public synchronized long total() {
+        return total;
+    }
+
+    /** How many lines are no longer kept. */
+    public synchronized long dropped() {
+        return Math.max(0, total - lines.length);
+    }
+
+    /** The last line, if any was printed. */
+    public Optional<String> last() {
+        byte[] bytes;
+        synchronized (this) {
+            if (total == 0) return Optional.empty();
+            bytes = lines[(int) ((total - 1) % lines.length)];
+        }
+        return Optional.of(new String(bytes, UTF_8));
+    }
+
+    /** The lines which are kept, oldest first. */
+    public List<String> lines() {
+        var snapshot = new ArrayList<byte[]>(lines.length);
+        synchronized (this) {
+            for (var i = Math.max(0, total - lines.length); i < total; i++)
+                snapshot.add(lines[(int) (i % lines.length)]);
+        }
+        var strings = new ArrayList<String>(snapshot.size());
+        for (var bytes : snapshot) strings.add(new String(bytes, UTF_8));
+        return strings;
+    }
+
+    /** Prints the lines which are kept to another writer, oldest first. */
+    public void writeTo(LineWriter out) throws IOException {
+        for (var line : lines()) out.println(line);
+    }
+}
@@ -0,0 +1,187 @@
+package dev.enola.be.task;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cache of the outputs of {@link Cacheable} tasks, see {@link TaskExecutor.Builder#cache}.
+ *
+ * <p>Outputs are stored (Java serialized) in files in a local directory, named by the SHA-256 of
+ * the task's class name and its {@link Cacheable#fingerprint(MessageDigest)}. The most recently
+ * used outputs are also kept in memory. When the files exceed the maximum size, the least recently
+ * used ones are deleted, based on their last modified time (which is updated on every hit from a
+ * file); those of outputs which are in memory are considered more recently used than all others.
+ *
+ * <p>The directory must only be writable by trusted users, because outputs are deserialized.
+ */
+public final class ActionCache {
+
+    private static final Logger LOG = Logger.getLogger(ActionCache.class.getName());
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Map<String, Object> memory;
+    private long bytes; // guarded by this
+
+    /**
+     * Constructor.
+     *
+     * @param directory where to store outputs
+     * @param maxBytes maximum total size of the files in the directory
+     * @param maxMemoryEntries maximum number of outputs to also keep in memory
+     */
+    public ActionCache(Path directory, long maxBytes, int maxMemoryEntries) throws IOException {
+        if (maxBytes < 1) throw new IllegalArgumentException("maxBytes must be positive");
+        if (maxMemoryEntries < 0)
+            throw new IllegalArgumentException("maxMemoryEntries is negative: " + maxMemoryEntries);
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+        this.memory =
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+                        return size() > maxMemoryEntries;
+                    }
+                };
+        try (var files = Files.walk(this.directory)) {
+            for (var file : files.filter(ActionCache::isOutput).toList()) bytes += Files.size(file);
+        }
+    }
+
+    // Not e.g. the temporary files which put() writes first, possibly in another thread
+    private static boolean isOutput(Path file) {
+        return Files.isRegularFile(file) && !file.getFileName().toString().endsWith(".tmp");
+    }
+
+    private static String key(Path file) {
+        return file.getParent().getFileName().toString() + file.getFileName();
+    }
+
+    // package-private, for TaskCallable
+    String key(Task<?, ?> task, Cacheable cacheable) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(task.getClass().getName().getBytes(UTF_8));
+        digest.update((byte) 0);
+        cacheable.fingerprint(digest);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private Path file(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key.substring(2));
+    }
+
+    // package-private, for TaskCallable
+    Optional<Object> get(String key) {
+        synchronized (this) {
+            var output = memory.get(key);
+            if (output != null) return Optional.of(output);
+        }
+
+        var file = file(key);
+        try (var in = new ObjectInputStream(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+            var output = in.readObject();
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            synchronized (this) {
+                memory.put(key, output);
+            }
+            return Optional.of(output);
+
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException | ClassNotFoundException e) {
+            // E.g. because the output class changed incompatibly; just treat it as a miss
+            LOG.log(Level.FINE, "Ignoring unreadable " + file, e);
+            return Optional.empty();
+        }
+    }
+
+    // package-private, for TaskCallable
+    void put(String key, Object output) {
+        if (!(output instanceof Serializable)) {
+            LOG.warning("Output is not Serializable, so not cached: " + output.getClass());
+            return;
+        }
+        try {
+            var bytes = new ByteArrayOutputStream();
+            try (var out = new ObjectOutputStream(bytes)) {
+                out.writeObject(output);
+            }
+
+            var file = file(key);
+            Files.createDirectories(file.getParent());
+            var tmp = Files.createTempFile(file.getParent(), key, ".tmp");
+            Files.write(tmp, bytes.toByteArray());
+            long replaced;
+            try {
+                replaced = Files.size(file);
+            } catch (NoSuchFileException e) {
+                replaced = 0;
+            }
+            Files.move(tmp, file, ATOMIC_MOVE, REPLACE_EXISTING);
+
+            synchronized (this) {
+                memory.put(key, output);
+                this.bytes += bytes.size() - replaced;
+                if (this.bytes > maxBytes) evict();
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to cache output of " + key, e);
+        }
+    }
+
+    // Deletes least recently used files, until 10% below the maximum, to not do this too often;
+    // hits in memory don't update the last modified time, so those files are deleted last
+    private void evict() throws IOException {
+        record Entry(Path file, long size, boolean inMemory, FileTime lastModified) {}
+
+        var entries = new ArrayList<Entry>();
+        long total = 0;
+        try (var files = Files.walk(directory)) {
+            for (var file : files.filter(ActionCache::isOutput).toList()) {
+                try {
+                    var size = Files.size(file);
+                    var inMemory = memory.containsKey(key(file));
+                    entries.add(new Entry(file, size, inMemory, Files.getLastModifiedTime(file)));
+                    total += size;
+                } catch (NoSuchFileException e) {
+                    // Deleted meanwhile, e.g. by another process using the same directory
+                }
+            }
+        }
+        entries.sort(
+                Comparator.comparing(Entry::inMemory).thenComparing(Entry::lastModified));
+        for (var entry : entries) {
+            if (total <= maxBytes * 9 / 10) break;
+            Files.deleteIfExists(entry.file());
+            total -= entry.size();
+        }
+        bytes = total;
+    }
+}
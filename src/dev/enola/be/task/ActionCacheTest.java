@@ -0,0 +1,101 @@
+package dev.enola.be.task;
+
+import static ch.vorburger.test.Assert.assertTrue;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ActionCacheTest {
+
+    public static void main(String[] args) throws Exception {
+        testHitDoesNotExecute();
+        testEviction();
+        testEvictionKeepsMemoryHitsAndTemporaryFiles();
+        testInvalidArguments();
+    }
+
+    private static final AtomicInteger executions = new AtomicInteger();
+
+    private static class UpperCaseTask extends Task<String, String> implements Cacheable {
+        UpperCaseTask(String input) {
+            super(input);
+        }
+
+        @Override
+        public void fingerprint(MessageDigest digest) {
+            digest.update(input.getBytes(UTF_8));
+        }
+
+        @Override
+        protected String execute() {
+            executions.incrementAndGet();
+            return input.toUpperCase();
+        }
+    }
+
+    private static String run(Path directory, String input) throws Exception {
+        var cache = new ActionCache(directory, 1024 * 1024, 10);
+        try (var executor = new TaskExecutor.Builder().cache(cache).build()) {
+            return executor.await(new UpperCaseTask(input));
+        }
+    }
+
+    private static void testHitDoesNotExecute() throws Exception {
+        var directory = Files.createTempDirectory("ActionCacheTest");
+        executions.set(0);
+
+        assertTrue("HELLO".equals(run(directory, "hello")));
+        assertTrue(executions.get() == 1, "Should have executed once: " + executions);
+
+        // New ActionCache (and TaskExecutor) with the same directory, so from disk
+        assertTrue("HELLO".equals(run(directory, "hello")));
+        assertTrue(executions.get() == 1, "Should have been a hit: " + executions);
+
+        assertTrue("WORLD".equals(run(directory, "world")));
+        assertTrue(executions.get() == 2, "Different input should execute: " + executions);
+    }
+
+    private static void testEviction() throws Exception {
+        var directory = Files.createTempDirectory("ActionCacheTest");
+        var cache = new ActionCache(directory, 1000, 1);
+        try (var executor = new TaskExecutor.Builder().cache(cache).build()) {
+            for (int i = 0; i < 100; i++) executor.await(new UpperCaseTask("input" + i));
+        }
+        long bytes;
+        try (var files = Files.walk(directory)) {
+            bytes = files.filter(Files::isRegularFile).mapToLong(f -> f.toFile().length()).sum();
+        }
+        assertTrue(bytes <= 1000, "Cache directory should not exceed 1000 bytes: " + bytes);
+    }
+
+    private static void testEvictionKeepsMemoryHitsAndTemporaryFiles() throws Exception {
+        var directory = Files.createTempDirectory("ActionCacheTest");
+        var cache = new ActionCache(directory, 1000, 2);
+        var value = "x".repeat(100);
+        cache.put("hot", value);
+        var hot = directory.resolve("ho").resolve("t");
+        Files.setLastModifiedTime(hot, FileTime.fromMillis(0));
+        var tmp = Files.createFile(directory.resolve("ho").resolve("in-flight.tmp"));
+        for (int i = 0; i < 100; i++) {
+            cache.put("key" + i, value);
+            assertTrue(cache.get("hot").isPresent(), "Should be a hit");
+        }
+        assertTrue(Files.exists(hot), "Hits in memory should not be evicted first");
+        assertTrue(Files.exists(tmp), "Temporary files should not be evicted");
+    }
+
+    private static void testInvalidArguments() throws Exception {
+        var directory = Files.createTempDirectory("ActionCacheTest");
+        try {
+            new ActionCache(directory, 1000, -1);
+            assertTrue(false, "Should have thrown an exception");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+}
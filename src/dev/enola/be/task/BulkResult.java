@@ -0,0 +1,19 @@
+package dev.enola.be.task;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of {@link TaskExecutor#awaitAll(java.util.Collection)}.
+ *
+ * @param outputs of the tasks which completed, in the order in which the tasks were given
+ * @param failures of the tasks which failed or were cancelled (as a {@link
+ *     java.util.concurrent.CancellationException}), in the order in which the tasks were given
+ */
+public record BulkResult<O>(List<O> outputs, Map<Task<?, O>, Throwable> failures) {
+
+    /** Whether all tasks completed. */
+    public boolean succeeded() {
+        return failures.isEmpty();
+    }
+}
@@ -0,0 +1,21 @@
+package dev.enola.be.task;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.security.MessageDigest;
+
+/**
+ * Marks a {@link Task} whose {@link Task#output()} is a pure function of its {@link Task#input()},
+ * so that a {@link TaskExecutor} with an {@link ActionCache} can return a previous output instead
+ * of calling {@link Task#execute()} again. The output must be {@link Serializable}.
+ */
+public interface Cacheable {
+
+    /**
+     * Adds a stable fingerprint of everything the output depends on to the digest; typically the
+     * input, and the content (not just the name and timestamp) of any files which are read. This
+     * must not include anything which differs between runs, such as {@link Object#hashCode()}. The
+     * task's class is already part of the cache key, and need not be added.
+     */
+    void fingerprint(MessageDigest digest) throws IOException;
+}
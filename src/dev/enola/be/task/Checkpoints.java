@@ -0,0 +1,105 @@
+package dev.enola.be.task;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serial;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Directory with the last checkpoint of each {@link Resumable} task which did not end yet, see
+ * {@link TaskExecutor.Builder#checkpoints(Path)}.
+ *
+ * <p>Each task has its own file, named by its ID, with its class name, its input, and the state of
+ * its last {@link Task#checkpoint(Serializable)} (Java serialized). The file is replaced atomically
+ * by a (synced) temporary file, so that a crash while writing it leaves the previous checkpoint.
+ *
+ * <p>The directory must only be writable by trusted users, because checkpoints are deserialized.
+ */
+final class Checkpoints {
+
+    private static final Logger LOG = Logger.getLogger(Checkpoints.class.getName());
+    private static final String SUFFIX = ".checkpoint";
+
+    private final Path directory;
+
+    record Checkpoint(UUID id, String type, Serializable input, Serializable state) {}
+
+    private record Data(String type, Serializable input, /*TODO @Nullable*/ Serializable state)
+            implements Serializable {
+        @Serial private static final long serialVersionUID = 1L;
+    }
+
+    Checkpoints(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    void save(Task<?, ?> task, /*TODO @Nullable*/ Serializable state) throws IOException {
+        if (!(task.input() instanceof Serializable input))
+            throw new NotSerializableException("Input of " + task.id() + " is not Serializable");
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new ObjectOutputStream(bytes)) {
+            out.writeObject(new Data(task.getClass().getName(), input, state));
+        }
+        var file = file(task.id());
+        var tmp = Files.createTempFile(directory, task.id().toString(), ".tmp");
+        try {
+            try (var channel = FileChannel.open(tmp, WRITE)) {
+                var buffer = ByteBuffer.wrap(bytes.toByteArray());
+                while (buffer.hasRemaining()) channel.write(buffer);
+                channel.force(true);
+            }
+            Files.move(tmp, file, ATOMIC_MOVE, REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    boolean exists(UUID id) {
+        return Files.exists(file(id));
+    }
+
+    void delete(UUID id) throws IOException {
+        Files.deleteIfExists(file(id));
+    }
+
+    /** Reads all checkpoints; those which cannot be read (e.g. of changed classes) are skipped. */
+    List<Checkpoint> load() throws IOException {
+        var checkpoints = new ArrayList<Checkpoint>();
+        try (var files = Files.list(directory)) {
+            for (var file : files.toList()) {
+                var name = file.getFileName().toString();
+                // Left over by a crash while saving
+                if (name.endsWith(".tmp")) Files.deleteIfExists(file);
+                if (!name.endsWith(SUFFIX)) continue;
+                try (var in = new ObjectInputStream(Files.newInputStream(file))) {
+                    var id = UUID.fromString(name.substring(0, name.length() - SUFFIX.length()));
+                    var data = (Data) in.readObject();
+                    checkpoints.add(new Checkpoint(id, data.type, data.input, data.state));
+                } catch (IOException | ClassNotFoundException | RuntimeException e) {
+                    LOG.log(Level.WARNING, "Cannot read checkpoint " + file, e);
+                }
+            }
+        }
+        return checkpoints;
+    }
+
+    private Path file(UUID id) {
+        return directory.resolve(id + SUFFIX);
+    }
+}
@@ -1,16 +1,26 @@
 package dev.enola.be.task;
 
+import java.io.Serial;
+import java.io.Serializable;
+
 /**
  * Unit. Use this instead of {@link Void} (which has to be <code>null</code>) for I or O in {@link
  * Task}.
  */
-public final class Empty {
+public final class Empty implements Serializable {
+
+    @Serial private static final long serialVersionUID = 1L;
 
     /** Singleton instance. */
     public static final Empty INSTANCE = new Empty();
 
     private Empty() {}
 
+    @Serial
+    private Object readResolve() {
+        return INSTANCE;
+    }
+
     @Override
     public String toString() {
         return "Empty{}";
@@ -0,0 +1,235 @@
+package dev.enola.be.task;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * {@link TaskStore} which appends completed tasks to a local file.
+ *
+ * <p>Only an index of where each task is in the file is kept in memory. Tasks are dropped from the
+ * index once they are older than the maximum age, or when there are more than the maximum number
+ * of tasks (oldest first). The file is compacted (rewritten with only the tasks still in the
+ * index) when more than half of it is no longer referenced.
+ *
+ * <p>Each record in the file is a 4 bytes length, followed by that many bytes of data. An
+ * incomplete record at the end of the file (e.g. after a crash) is discarded when opening it.
+ */
+public final class FileTaskStore implements TaskStore, AutoCloseable {
+
+    private static final long MIN_COMPACTION_SIZE = 1024 * 1024;
+
+    private final Path file;
+    private final Duration maxAge;
+    private final int maxTasks;
+
+    // Guarded by this; insertion order is the order in which tasks were put
+    private final LinkedHashMap<UUID, Entry> index = new LinkedHashMap<>();
+    private FileChannel channel;
+    private long liveBytes;
+
+    private record Entry(long position, int length, Instant endedAt) {}
+
+    /**
+     * Opens (or creates) a store file.
+     *
+     * @param file the file
+     * @param maxAge maximum age of tasks (since they ended) in this store
+     * @param maxTasks maximum number of tasks in this store
+     */
+    public FileTaskStore(Path file, Duration maxAge, int maxTasks) throws IOException {
+        if (maxAge.isNegative() || maxAge.isZero())
+            throw new IllegalArgumentException("maxAge must be positive: " + maxAge);
+        if (maxTasks < 1) throw new IllegalArgumentException("maxTasks must be positive");
+        this.file = file;
+        this.maxAge = maxAge;
+        this.maxTasks = maxTasks;
+        this.channel = FileChannel.open(file, CREATE, READ, WRITE);
+        load();
+    }
+
+    private synchronized void load() throws IOException {
+        var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        long position = 0;
+        while (true) {
+            byte[] data;
+            try {
+                var length = in.readInt();
+                if (length < 0 || length > channel.size() - position - 4) break;
+                data = new byte[length];
+                in.readFully(data);
+            } catch (EOFException e) {
+                break;
+            }
+            var task = decode(data);
+            var endedAt = task.endedAt().orElseGet(Instant::now);
+            index(task.id(), new Entry(position, 4 + data.length, endedAt));
+            position += 4 + data.length;
+        }
+        channel.truncate(position);
+        retain();
+    }
+
+    @Override
+    public synchronized void put(Task<?, ?> task) throws IOException {
+        if (!task.status().isTerminal())
+            throw new IllegalArgumentException("Task " + task.id() + " is " + task.status());
+
+        var data = encode(task);
+        var buffer = ByteBuffer.allocate(4 + data.length).putInt(data.length).put(data).flip();
+        var position = channel.size();
+        while (buffer.hasRemaining()) channel.write(buffer, position + buffer.position());
+
+        var endedAt = task.endedAt().orElseGet(Instant::now);
+        index(task.id(), new Entry(position, 4 + data.length, endedAt));
+        retain();
+        if (channel.size() > MIN_COMPACTION_SIZE && channel.size() > 2 * liveBytes) compact();
+    }
+
+    @Override
+    public synchronized Optional<Task<?, ?>> get(UUID id) throws IOException {
+        var entry = index.get(id);
+        if (entry == null) return Optional.empty();
+        var buffer = ByteBuffer.allocate(entry.length - 4);
+        while (buffer.hasRemaining())
+            if (channel.read(buffer, entry.position + 4 + buffer.position()) < 0)
+                throw new EOFException(file + " truncated at " + entry.position);
+        return Optional.of(decode(buffer.array()));
+    }
+
+    @Override
+    public synchronized Set<UUID> ids() {
+        return Set.copyOf(index.keySet());
+    }
+
+    private void index(UUID id, Entry entry) {
+        var previous = index.remove(id);
+        if (previous != null) liveBytes -= previous.length;
+        index.put(id, entry);
+        liveBytes += entry.length;
+    }
+
+    private void retain() {
+        var oldest = Instant.now().minus(maxAge);
+        var it = index.values().iterator();
+        while (it.hasNext()) {
+            var entry = it.next();
+            if (index.size() <= maxTasks && !entry.endedAt.isBefore(oldest)) break;
+            it.remove();
+            liveBytes -= entry.length;
+        }
+    }
+
+    // The compacted file stays open, and becomes the channel only once it was moved into place;
+    // until then, the old file stays open, so that if anything fails, it's still (all) there.
+    private void compact() throws IOException {
+        var tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        var compacted = new LinkedHashMap<UUID, Entry>();
+        var out = FileChannel.open(tmp, CREATE, TRUNCATE_EXISTING, READ, WRITE);
+        try {
+            long position = 0;
+            for (var e : index.entrySet()) {
+                var entry = e.getValue();
+                channel.transferTo(entry.position, entry.length, out);
+                compacted.put(e.getKey(), new Entry(position, entry.length, entry.endedAt));
+                position += entry.length;
+            }
+            out.force(true);
+            Files.move(tmp, file, ATOMIC_MOVE, REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            out.close();
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        var old = channel;
+        channel = out;
+        index.clear();
+        index.putAll(compacted);
+        old.close();
+    }
+
+    private static byte[] encode(Task<?, ?> task) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+        out.writeLong(task.id().getMostSignificantBits());
+        out.writeLong(task.id().getLeastSignificantBits());
+        writeString(out, task.typeName());
+        writeString(out, task.status().name());
+        writeInstant(out, task.startedAt().orElse(null));
+        writeInstant(out, task.endedAt().orElse(null));
+        writeString(out, task.input().toString());
+        writeString(out, task.output().map(Object::toString).orElse(null));
+        writeString(out, task.failure().map(Object::toString).orElse(null));
+        return bytes.toByteArray();
+    }
+
+    private static StoredTask decode(byte[] data) throws IOException {
+        var in = new DataInputStream(new ByteArrayInputStream(data));
+        var id = new UUID(in.readLong(), in.readLong());
+        var type = readString(in);
+        var status = Status.valueOf(readString(in));
+        var startedAt = readInstant(in);
+        var endedAt = readInstant(in);
+        var input = readString(in);
+        var output = readString(in);
+        var failure = readString(in);
+        return new StoredTask(id, type, status, startedAt, endedAt, input, output, failure);
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        if (string == null) {
+            out.writeInt(-1);
+            return;
+        }
+        var bytes = string.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        var length = in.readInt();
+        if (length < 0) return null;
+        return new String(in.readNBytes(length), UTF_8);
+    }
+
+    private static void writeInstant(DataOutputStream out, Instant instant) throws IOException {
+        out.writeBoolean(instant != null);
+        if (instant == null) return;
+        out.writeLong(instant.getEpochSecond());
+        out.writeInt(instant.getNano());
+    }
+
+    private static Instant readInstant(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) return null;
+        return Instant.ofEpochSecond(in.readLong(), in.readInt());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.force(true);
+        channel.close();
+    }
+}
@@ -0,0 +1,117 @@
+package dev.enola.be.task;
+
+import static ch.vorburger.test.Assert.assertTrue;
+
+import dev.enola.be.task.test.FailingTask;
+import dev.enola.be.task.test.ImmediateTask;
+
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+
+public class FileTaskStoreTest {
+
+    public static void main(String[] args) throws Exception {
+        testPutGetReopen();
+        testMaxTasks();
+        testCompaction();
+        testEvictedTasksAreStored();
+    }
+
+    private static void testPutGetReopen() throws Exception {
+        var file = Files.createTempDirectory("FileTaskStoreTest").resolve("tasks.log");
+        var completed = new ImmediateTask("test");
+        var failed = new FailingTask();
+        try (var executor = new TaskExecutor()) {
+            executor.await(completed);
+            try {
+                executor.await(failed);
+            } catch (RuntimeException e) {
+                // Expected
+            }
+        }
+
+        try (var store = new FileTaskStore(file, Duration.ofDays(1), 100)) {
+            store.put(completed);
+            store.put(failed);
+        }
+        // Simulate a crash in the middle of writing a record
+        Files.write(file, new byte[] {0, 0, 1}, StandardOpenOption.APPEND);
+
+        try (var store = new FileTaskStore(file, Duration.ofDays(1), 100)) {
+            assertTrue(store.ids().size() == 2, "Should have 2 tasks: " + store.ids());
+
+            var stored = store.get(completed.id()).get();
+            assertTrue(stored instanceof StoredTask, "Should be a StoredTask");
+            assertTrue(stored.status() == Status.COMPLETED, "Should be COMPLETED: " + stored);
+            assertTrue("Result: test".equals(stored.output().get()), "Output: " + stored);
+            assertTrue("test".equals(stored.input()), "Input: " + stored);
+            assertTrue(stored.startedAt().equals(completed.startedAt()), "startedAt: " + stored);
+            assertTrue(stored.endedAt().equals(completed.endedAt()), "endedAt: " + stored);
+            assertTrue(stored.toString().contains("ImmediateTask"), stored);
+
+            stored = store.get(failed.id()).get();
+            assertTrue(stored.status() == Status.FAILED, "Should be FAILED: " + stored);
+            var message = stored.failure().get().getMessage();
+            assertTrue(message.contains("Intentional runtime exception"), message);
+        }
+    }
+
+    private static void testMaxTasks() throws Exception {
+        var file = Files.createTempDirectory("FileTaskStoreTest").resolve("tasks.log");
+        try (var executor = new TaskExecutor();
+                var store = new FileTaskStore(file, Duration.ofDays(1), 2)) {
+            var tasks = new Task<?, ?>[3];
+            for (int i = 0; i < tasks.length; i++) {
+                tasks[i] = new ImmediateTask("test" + i);
+                executor.await(tasks[i]);
+                store.put(tasks[i]);
+            }
+            assertTrue(store.ids().size() == 2, "Should only keep 2 tasks: " + store.ids());
+            assertTrue(store.get(tasks[0].id()).isEmpty(), "Oldest task should be dropped");
+        }
+    }
+
+    private static void testCompaction() throws Exception {
+        var file = Files.createTempDirectory("FileTaskStoreTest").resolve("tasks.log");
+        var big = "x".repeat(100_000);
+        try (var executor = new TaskExecutor();
+                var store = new FileTaskStore(file, Duration.ofDays(1), 2)) {
+            Task<?, ?> last = null;
+            for (int i = 0; i < 30; i++) {
+                last = new ImmediateTask(big + i);
+                executor.await(last);
+                store.put(last);
+            }
+            assertTrue(Files.size(file) < 1024 * 1024 + 300_000, "Not compacted: " + file);
+            assertTrue(store.get(last.id()).get().input().equals(big + 29), "Last task");
+            var after = new ImmediateTask("after");
+            executor.await(after);
+            store.put(after);
+        }
+        try (var store = new FileTaskStore(file, Duration.ofDays(1), 2)) {
+            assertTrue(store.ids().size() == 2, "Should have 2 tasks: " + store.ids());
+        }
+    }
+
+    private static void testEvictedTasksAreStored() throws Exception {
+        var file = Files.createTempDirectory("FileTaskStoreTest").resolve("tasks.log");
+        try (var store = new FileTaskStore(file, Duration.ofDays(1), 100)) {
+            var task = new ImmediateTask("test");
+            try (var executor =
+                    new TaskExecutor.Builder()
+                            .completedTaskEvictionInterval(Duration.ofMillis(10))
+                            .store(store)
+                            .build()) {
+                executor.await(task);
+                Thread.sleep(100);
+                assertTrue(store.ids().contains(task.id()), "Evicted task should be stored");
+
+                var stored = executor.get(task.id());
+                assertTrue(stored != task, "Should have been evicted from memory");
+                assertTrue(stored.status() == Status.COMPLETED, "Should be COMPLETED: " + stored);
+                assertTrue(executor.list().contains(task.id()), "Should still be listed");
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package dev.enola.be.task;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Progress of a {@link Task}, see {@link Task#progress()}.
+ *
+ * <p>Updating it is cheap enough to do from hot loops, millions of times per second: {@link
+ * #increment()} and {@link #add(long)} are a {@link LongAdder}, which does not allocate, and does
+ * not contend even if several threads update it. Reading it, e.g. with {@link
+ * TaskExecutor#watchProgress}, is (relatively) more expensive, and should only be done from time to
+ * time.
+ */
+public final class Progress {
+
+    private final LongAdder done = new LongAdder();
+    private volatile long total;
+
+    /** A snapshot of the progress of a task, see {@link TaskExecutor#watchProgress}. */
+    public record Sample(UUID id, String type, long done, long total, long perSecond) {
+        @Override
+        public String toString() {
+            var percent = total > 0 ? " (" + done * 100 / total + "%)" : "";
+            return type + " " + id + ": " + done + "/" + total + percent + ", " + perSecond + "/s";
+        }
+    }
+
+    /** Sets how many units of work there are in total, if known. */
+    public void total(long total) {
+        if (total < 0) throw new IllegalArgumentException("total must not be negative: " + total);
+        this.total = total;
+    }
+
+    /** Adds one unit of work done. */
+    public void increment() {
+        done.increment();
+    }
+
+    /** Adds units of work done. */
+    public void add(long units) {
+        done.add(units);
+    }
+
+    /** Units of work done so far. */
+    public long done() {
+        return done.sum();
+    }
+
+    /** Units of work in total, or 0 if unknown. */
+    public long total() {
+        return total;
+    }
+
+    /** Progress, as 0-100%, or -1 if the total is unknown. */
+    public int percent() {
+        var total = this.total;
+        if (total == 0) return -1;
+        return (int) Math.min(100, done() * 100 / total);
+    }
+}
@@ -0,0 +1,14 @@
+package dev.enola.be.task;
+
+import java.io.Serializable;
+
+/**
+ * Marks a {@link Task} which a {@link TaskExecutor} with a {@link WorkerPool} runs in one of the
+ * pool's worker JVMs, instead of in its own; e.g. to isolate memory-hungry tasks.
+ *
+ * <p>The worker creates a new instance of the task's class, with a public constructor which takes
+ * its {@link Task#input()} (or no arguments, if the input is {@link Empty}), and then calls {@link
+ * Task#execute()} on that. So the task must not depend on any state other than its input; and its
+ * input and output must be {@link Serializable}.
+ */
+public interface Remotable {}
@@ -0,0 +1,25 @@
+package dev.enola.be.task;
+
+import java.io.Serializable;
+
+/**
+ * Marks a {@link Task} which can continue where it left off, e.g. after the JVM was restarted;
+ * see {@link TaskExecutor.Builder#checkpoints(java.nio.file.Path)}.
+ *
+ * <p>Its {@link Task#execute()} saves its progress every so often with {@link
+ * Task#checkpoint(Serializable)}. When {@link TaskExecutor#resume()} recreates a task which had not
+ * ended, it creates a new instance of its class, like for {@link Remotable}, and calls {@link
+ * #resume(Serializable)} with the state of its last checkpoint, before submitting it. So the task
+ * must not depend on any state other than its input and that; and they must be {@link
+ * Serializable}.
+ *
+ * @param <S> type of the state which the task saves in its checkpoints
+ */
+public interface Resumable<S extends Serializable> {
+
+    /**
+     * Restores the state of the last checkpoint, before {@link Task#execute()} is called. This is
+     * not called if the task was not resumed, or never saved a checkpoint.
+     */
+    void resume(S state);
+}
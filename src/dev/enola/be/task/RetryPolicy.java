@@ -0,0 +1,129 @@
+package dev.enola.be.task;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * How often, and after how long, a {@link TaskExecutor} re-runs a {@link Task} whose {@link
+ * Task#execute()} failed; see {@link Task#retryPolicy()}.
+ *
+ * <p>The wait before each retry grows exponentially, with random jitter, so that many tasks which
+ * failed at the same time (e.g. because a service was down) do not all retry at the same time
+ * again. No thread is blocked while waiting; and a task does not count against the concurrency
+ * limits while it waits.
+ */
+public final class RetryPolicy {
+
+    /** Never retry; the default. */
+    public static final RetryPolicy NONE = new Builder().maxAttempts(1).build();
+
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final double multiplier;
+    private final double jitter;
+    private final Predicate<Throwable> retryOn;
+
+    private RetryPolicy(Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.initialBackoff = builder.initialBackoff;
+        this.maxBackoff = builder.maxBackoff;
+        this.multiplier = builder.multiplier;
+        this.jitter = builder.jitter;
+        this.retryOn = builder.retryOn;
+    }
+
+    public static class Builder {
+        private int maxAttempts = 3;
+        private Duration initialBackoff = Duration.ofMillis(100);
+        private Duration maxBackoff = Duration.ofSeconds(30);
+        private double multiplier = 2;
+        private double jitter = 0.2;
+        private Predicate<Throwable> retryOn =
+                t -> t instanceof Exception && !(t instanceof InterruptedException);
+
+        /** Maximum number of times to run the task, incl. the first one. Default is 3. */
+        public Builder maxAttempts(int maxAttempts) {
+            if (maxAttempts < 1) throw new IllegalArgumentException("maxAttempts must be >= 1");
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Wait before the first retry, which is multiplied for each further retry, up to a maximum.
+         * Default is 100ms, times 2, up to 30s.
+         */
+        public Builder backoff(Duration initial, double multiplier, Duration max) {
+            if (initial.isNegative() || max.compareTo(initial) < 0)
+                throw new IllegalArgumentException("Need 0 <= initial <= max: " + initial);
+            if (multiplier < 1) throw new IllegalArgumentException("multiplier must be >= 1");
+            this.initialBackoff = initial;
+            this.multiplier = multiplier;
+            this.maxBackoff = max;
+            return this;
+        }
+
+        /**
+         * Randomizes each wait by up to this fraction, e.g. 0.2 for ±20%, which is the default.
+         */
+        public Builder jitter(double jitter) {
+            if (jitter < 0 || jitter > 1)
+                throw new IllegalArgumentException("jitter must be in [0, 1]: " + jitter);
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         * Which failures to retry. Default is all {@link Exception}s, except {@link
+         * InterruptedException}; but no {@link Error}s.
+         */
+        public Builder retryOn(Predicate<Throwable> retryOn) {
+            this.retryOn = requireNonNull(retryOn, "retryOn");
+            return this;
+        }
+
+        /** Only retry failures which are instances of the given type (or its subclasses). */
+        public Builder retryOn(Class<? extends Throwable> type) {
+            return retryOn(type::isInstance);
+        }
+
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+
+    public int maxAttempts() {
+        return maxAttempts;
+    }
+
+    /** Whether to retry after the given attempt (1 for the first) failed with the given cause. */
+    public boolean retries(int attempt, Throwable failure) {
+        return attempt < maxAttempts && retryOn.test(failure);
+    }
+
+    /** Wait before the retry after the given attempt (1 for the first), incl. jitter. */
+    public Duration backoff(int attempt) {
+        var nanos = initialBackoff.toNanos() * Math.pow(multiplier, attempt - 1);
+        nanos = Math.min(nanos, maxBackoff.toNanos());
+        if (jitter > 0) nanos *= 1 + jitter * ThreadLocalRandom.current().nextDouble(-1, 1);
+        return Duration.ofNanos((long) nanos);
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy{maxAttempts="
+                + maxAttempts
+                + ", backoff="
+                + initialBackoff
+                + "*"
+                + multiplier
+                + "^n<="
+                + maxBackoff
+                + ", jitter="
+                + jitter
+                + "}";
+    }
+}
@@ -0,0 +1,16 @@
+package dev.enola.be.task;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A task changed its {@link Task#status()}, see {@link TaskExecutor#statusChanges()}.
+ *
+ * @param at when it changed, i.e. {@link Task#submittedAt()} or {@link Task#endedAt()}
+ */
+public record StatusChange(UUID id, String type, Status status, Instant at) {
+    @Override
+    public String toString() {
+        return type + " " + id + ": " + status + " at " + at;
+    }
+}
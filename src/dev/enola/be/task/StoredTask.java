@@ -0,0 +1,57 @@
+package dev.enola.be.task;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Read-only {@link Task} obtained from a {@link TaskStore}.
+ *
+ * <p>It has the {@link #id()}, {@link #status()} and timings of the original task. Its {@link
+ * #input()} and {@link #output()} are the {@link Object#toString()} of the original ones, and its
+ * {@link #failure()} is an {@link Exception} with the {@link Object#toString()} of the original
+ * failure as message. It cannot be submitted to a {@link TaskExecutor} (again).
+ */
+public final class StoredTask extends Task<String, String> {
+
+    private final String type;
+
+    StoredTask(
+            UUID id,
+            String type,
+            Status status,
+            Instant startedAt,
+            Instant endedAt,
+            String input,
+            String output,
+            String failure) {
+        super(id, input);
+        this.type = type;
+        future(
+                switch (status) {
+                    case COMPLETED -> CompletableFuture.completedFuture(output);
+                    case FAILED -> CompletableFuture.failedFuture(new Exception(failure));
+                    case CANCELLED -> {
+                        var future = new CompletableFuture<String>();
+                        future.cancel(false);
+                        yield future;
+                    }
+                    case PENDING, IN_PROGRESS ->
+                            throw new IllegalArgumentException("Not terminal: " + status);
+                });
+        startedAt(startedAt);
+        endedAt(endedAt);
+        done();
+    }
+
+    /** Class name of the original task. */
+    @Override
+    public String typeName() {
+        return type;
+    }
+
+    @Override
+    protected String execute() {
+        throw new UnsupportedOperationException("StoredTask cannot be executed: " + id());
+    }
+}
@@ -2,27 +2,78 @@ package dev.enola.be.task;
 
 import static java.util.Objects.requireNonNull;
 
+import dev.enola.be.io.LineWriter;
+import dev.enola.be.io.TailBuffer;
+import dev.enola.be.task.TaskExecutor.LoggingFutureTask;
 import dev.enola.common.concurrent.Threads;
 
+import java.io.IOException;
+import java.io.Serializable;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 // TODO ErrorProne @Immutable ?
 public abstract class Task<I, O> {
 
-    private final UUID id = UUID.randomUUID();
+    private static final Logger LOG = Logger.getLogger(Task.class.getName());
+
+    // Timings use the monotonic clock; these convert them to (and from) the wall clock
+    private static final long NOT_SET = Long.MIN_VALUE;
+    private static final Instant ANCHOR_INSTANT = Instant.now();
+    private static final long ANCHOR_NANOS = System.nanoTime();
+
+    private static final int MAX_ENDED_CHILDREN = 100;
+
+    private final long sequence;
+    private final UUID id;
     private final AtomicReference<Future<O>> future = new AtomicReference<>();
-    private volatile /*TODO @Nullable*/ Instant startedAt;
-    private volatile /*TODO @Nullable*/ Instant endedAt;
+    private final AtomicReference<Callback> callbacks = new AtomicReference<>();
+    // Only created if await() has to wait, see awaitDone(); creation is guarded by callbacks
+    private volatile /*TODO @Nullable*/ CountDownLatch doneLatch;
+    // While done() runs the callbacks, the thread which does; so that await() from within one of
+    // them (e.g. a toCompletableFuture() continuation) doesn't wait for the callbacks to finish
+    private volatile /*TODO @Nullable*/ Thread callbacksThread;
+    private final Progress progress = new Progress();
+    // Only created when the task prints its first line, see out()
+    private final AtomicReference<TailBuffer> outputTail = new AtomicReference<>();
+    private final LineWriter out = this::print;
+    private final Set<Task<?, ?>> children = ConcurrentHashMap.newKeySet();
+    // Only created when the first child ended, see removeChild(); creation is guarded by children
+    private volatile /*TODO @Nullable*/ EndedChildren endedChildren;
+    private volatile /*TODO @Nullable*/ Task<?, ?> parent;
+    // System.nanoTime() of when the task was submitted, started and ended; or NOT_SET (yet)
+    private volatile long submittedNanos = NOT_SET;
+    private volatile long startedNanos = NOT_SET;
+    private volatile long endedNanos = NOT_SET;
+    private volatile int attempts;
     protected final I input;
 
     protected Task(I input) {
+        this.sequence = TaskIds.next();
+        this.id = TaskIds.uuid(sequence);
+        this.input = requireNonNull(input);
+    }
+
+    // package-private, for StoredTask (only)
+    Task(UUID id, I input) {
+        this.sequence = TaskIds.sequence(id);
+        this.id = requireNonNull(id);
         this.input = requireNonNull(input);
     }
 
@@ -47,11 +98,11 @@ public abstract class Task<I, O> {
      */
     protected abstract O execute() throws Exception;
 
-    // package-private, for TaskExecutor (only)
-    final void future(Future<O> future) {
-        if (!this.future.compareAndSet(null, future))
-            throw new IllegalStateException("Future already set for task " + id());
-        this.startedAt = Instant.now();
+    // package-private, for TaskExecutor (only); false if it already had one, i.e. was submitted
+    final boolean future(Future<O> future) {
+        if (!this.future.compareAndSet(null, future)) return false;
+        this.submittedNanos = System.nanoTime();
+        return true;
     }
 
     /** 🆔 */
@@ -59,6 +110,11 @@ public abstract class Task<I, O> {
         return id;
     }
 
+    // package-private, for TaskExecutor (only); see TaskIds, -1 if StoredTask of another process
+    final long sequence() {
+        return sequence;
+    }
+
     public final I input() {
         return input;
     }
@@ -96,6 +152,7 @@ public abstract class Task<I, O> {
     // package-private, for TaskExecutor (only)
     O await(Future<O> future) throws UncheckedTaskAwaitException {
         try {
+            awaitDone();
             return future.get();
 
         } catch (InterruptedException e) {
@@ -143,26 +200,130 @@ public abstract class Task<I, O> {
         };
     }
 
+    /** When the task was submitted to a {@link TaskExecutor}. */
+    public final Optional<Instant> submittedAt() {
+        return instant(submittedNanos);
+    }
+
+    /**
+     * When the task actually started, i.e. its {@link #execute()} was invoked; this is after any
+     * {@link #queueWait()}. Empty if it never started, e.g. because it was cancelled before.
+     */
     public final Optional<Instant> startedAt() {
-        return Optional.ofNullable(startedAt);
+        return instant(startedNanos);
     }
 
+    /** When the task ended, i.e. reached a {@link Status#isTerminal()} status. */
     public final Optional<Instant> endedAt() {
-        return Optional.ofNullable(endedAt);
+        return instant(endedNanos);
+    }
+
+    /**
+     * Time from submission until start (or until now, if not started yet). This includes waiting
+     * for {@link #dependencies()} and for concurrency limits. Zero if not submitted.
+     */
+    public final Duration queueWait() {
+        var submitted = submittedNanos;
+        if (submitted == NOT_SET) return Duration.ZERO;
+        var started = startedNanos;
+        if (started == NOT_SET) {
+            // Cancelled (or failed dependencies) before it ever started
+            var ended = endedNanos;
+            return Duration.ofNanos((ended != NOT_SET ? ended : System.nanoTime()) - submitted);
+        }
+        return Duration.ofNanos(started - submitted);
     }
 
-    /* package-private */ final void endedAt(Instant endedAt) {
-        this.endedAt = endedAt;
+    /**
+     * Time from start until end (or until now, if not ended yet). Zero if not started. If it was
+     * {@link #retryPolicy() retried}, this is from the start of the first attempt, so it includes
+     * the waits between attempts.
+     */
+    public final Duration runTime() {
+        var started = startedNanos;
+        if (started == NOT_SET) return Duration.ZERO;
+        var ended = endedNanos;
+        return Duration.ofNanos((ended != NOT_SET ? ended : System.nanoTime()) - started);
     }
 
+    /** Same as {@link #runTime()}; see also {@link #queueWait()}. */
     public final Duration duration() {
-        if (startedAt == null) return Duration.ZERO;
-        if (endedAt == null) return Duration.between(startedAt, Instant.now());
-        return Duration.between(startedAt, endedAt);
+        return runTime();
+    }
+
+    // package-private, for TaskCallable (only); on each attempt, but startedAt is the first
+    final void started() {
+        if (attempts++ == 0) this.startedNanos = System.nanoTime();
+    }
+
+    // package-private, for TaskExecutor (only)
+    final void ended() {
+        this.endedNanos = System.nanoTime();
+    }
+
+    // package-private, for TaskExecutor (only); System.nanoTime(), or Long.MIN_VALUE if not ended
+    final long endedNanos() {
+        return endedNanos;
     }
 
-    /** Progress, as 0-100%. */
-    // TODO public int progress() {}
+    // package-private, for StoredTask (only); submission is not stored, so assume no queueWait()
+    final void startedAt(Instant startedAt) {
+        this.startedNanos = this.submittedNanos = nanos(startedAt);
+    }
+
+    // package-private, for StoredTask (only)
+    final void endedAt(Instant endedAt) {
+        this.endedNanos = nanos(endedAt);
+    }
+
+    private static Optional<Instant> instant(long nanos) {
+        if (nanos == NOT_SET) return Optional.empty();
+        return Optional.of(ANCHOR_INSTANT.plusNanos(nanos - ANCHOR_NANOS));
+    }
+
+    private static long nanos(/*TODO @Nullable*/ Instant instant) {
+        if (instant == null) return NOT_SET;
+        return ANCHOR_NANOS + Duration.between(ANCHOR_INSTANT, instant).toNanos();
+    }
+
+    /**
+     * Progress. Implementations of {@link #execute()} can (but do not have to) report it; e.g.
+     * {@link Progress#total(long)} once at the start, and then {@link Progress#increment()} in a
+     * loop.
+     */
+    public final Progress progress() {
+        return progress;
+    }
+
+    /**
+     * Where {@link #execute()} prints its output to. The last {@link #outputTailLines()} lines are
+     * kept in the {@link #outputTail()} of this task, and passed to the {@link TaskConsole} of the
+     * executor, if it has one.
+     */
+    protected final LineWriter out() {
+        return out;
+    }
+
+    private void print(Object line) throws IOException {
+        var tail = outputTail.get();
+        if (tail == null) {
+            tail = new TailBuffer(outputTailLines());
+            var witness = outputTail.compareAndExchange(null, tail);
+            if (witness != null) tail = witness;
+        }
+        tail.println(line);
+        if (future.get() instanceof LoggingFutureTask<?> ft) ft.print(line);
+    }
+
+    /** The last lines which this task printed to {@link #out()}; empty if it did not print any. */
+    public final Optional<TailBuffer> outputTail() {
+        return Optional.ofNullable(outputTail.get());
+    }
+
+    /** How many lines of its {@link #out()} to keep in {@link #outputTail()}. Default is 100. */
+    public int outputTailLines() {
+        return 100;
+    }
 
     public final void cancel() {
         var f = future.get();
@@ -172,17 +333,363 @@ public abstract class Task<I, O> {
     /**
      * Timeout duration, when task should be automatically cancelled.
      *
+     * <p>The timeout starts when the task is started by the {@link TaskExecutor}, i.e. it does not
+     * include any time spent waiting for its {@link #dependencies()}, or for concurrency limits. It
+     * is enforced with a precision of about 10ms.
+     *
      * <p>{@link Duration#ZERO} means no (infinite) timeout.
      */
     public Duration timeout() {
         return Duration.ZERO;
     }
 
-    // TODO Set<Task<?, ?, ?>> dependencies();
+    /**
+     * Relative cost of running this task, such as how many CPU cores it keeps busy; at least 1.
+     *
+     * <p>This is used for the concurrency limit of {@link
+     * TaskExecutor.Builder#maxConcurrency(int)}.
+     */
+    public int weight() {
+        return 1;
+    }
+
+    /**
+     * Whether (and when) the {@link TaskExecutor} should re-run this task if its {@link #execute()}
+     * fails. Default is {@link RetryPolicy#NONE}.
+     *
+     * <p>Implementations which are retried must be idempotent; note that {@link #execute()} is then
+     * invoked repeatedly on the same task instance.
+     */
+    public RetryPolicy retryPolicy() {
+        return RetryPolicy.NONE;
+    }
+
+    /** How many times {@link #execute()} was invoked, see {@link #retryPolicy()}. */
+    public final int attempts() {
+        return attempts;
+    }
+
+    /**
+     * Whether this task keeps a CPU core busy (e.g. computing), instead of mostly waiting (e.g.
+     * for I/O). Default is false.
+     *
+     * <p>The {@link TaskExecutor} runs CPU-bound tasks on a work-stealing pool of as many threads
+     * as there are cores, instead of on a virtual thread each; this avoids that many of them
+     * compete for the carrier threads of virtual threads (and the I/O-bound tasks waiting for
+     * those), and keeps subtasks which they {@link #fork(Task)} on the same core, if possible.
+     */
+    public boolean cpuBound() {
+        return false;
+    }
+
+    /**
+     * Submits a subtask of this task to the same {@link TaskExecutor}; this can only be called by
+     * {@link #execute()}, on its thread. Its output is typically awaited by that same execute().
+     *
+     * <p>If both this and the subtask are {@link #cpuBound()}, then the subtask is queued on the
+     * current core first; and if it did not start yet by the time it is awaited, it runs right on
+     * the awaiting thread, instead of blocking it; like {@link java.util.concurrent.ForkJoinTask}.
+     *
+     * @return the subtask
+     * @throws IllegalStateException if this is not currently executing
+     */
+    protected final <T extends Task<?, ?>> T fork(T subtask) throws IllegalStateException {
+        if (TaskCallable.current() != this || !(future.get() instanceof LoggingFutureTask<?> ft))
+            throw new IllegalStateException("Can only fork from execute() of " + id());
+        ft.fork(subtask);
+        return subtask;
+    }
+
+    /**
+     * Saves the state of this {@link Resumable} task, from which {@link TaskExecutor#resume()} can
+     * continue it, if it did not end when its executor stopped (e.g. because its JVM crashed). It
+     * is called from {@link #execute()} every so often, e.g. every N items or every minute; as each
+     * call writes (and syncs) a file. Does nothing if the executor has no {@link
+     * TaskExecutor.Builder#checkpoints(java.nio.file.Path)} directory (or this runs in a {@link
+     * Worker}).
+     *
+     * @param state passed to {@link Resumable#resume(Serializable)}, must thus be of its type
+     * @throws IOException if the checkpoint could not be written
+     * @throws IllegalStateException if this is not Resumable
+     */
+    protected final void checkpoint(Serializable state) throws IOException {
+        if (!(this instanceof Resumable<?>))
+            throw new IllegalStateException("Only Resumable tasks can checkpoint: " + id());
+        if (future.get() instanceof LoggingFutureTask<?> ft) ft.checkpoint(requireNonNull(state));
+    }
+
+    /**
+     * Priority of this task; higher starts first. Default is 0; may be negative.
+     *
+     * <p>This only matters when tasks have to wait to start, because of the {@link
+     * TaskExecutor.Builder#maxConcurrency(int)} limits. Tasks of a higher priority then always
+     * start before any of a lower priority, e.g. interactive ones before a bulk batch job.
+     */
+    public int priority() {
+        return 0;
+    }
+
+    /**
+     * Name of the group of tasks which share the executor fairly with other groups, according to
+     * {@link TaskExecutor.Builder#share(String, int)}; e.g. a tenant. Default is the class name.
+     */
+    public String shareGroup() {
+        return getClass().getName();
+    }
+
+    /**
+     * Other tasks which must have {@link Status#COMPLETED} before this task can start.
+     *
+     * <p>{@link TaskExecutor#async(Task)} also submits those (transitive) dependencies which are
+     * still {@link Status#PENDING}, and then only starts this task once all of them completed;
+     * their {@link #output()} can be used from within {@link #execute()}. Independent dependencies
+     * run concurrently. While waiting for its dependencies, this task is {@link
+     * Status#IN_PROGRESS}. If any dependency fails or is cancelled, then this task {@link
+     * Status#FAILED} without executing.
+     *
+     * <p>Dependencies must not form a cycle. Implementations must always return the same tasks.
+     */
+    public Set<Task<?, ?>> dependencies() {
+        return Set.of();
+    }
+
+    // Lock-free stack of callbacks, which is replaced by DONE once they have been run
+    private record Callback(Runnable runnable, Callback next) {}
+
+    private static final Callback DONE = new Callback(() -> {}, null);
+
+    /**
+     * Registers a callback to run (once) when this task is done, i.e. has reached a {@link
+     * Status#isTerminal()} state; or right away, if it already is.
+     *
+     * <p>This does not block any thread while waiting. The callback runs on the thread which
+     * completed the task (or cancelled it), and should thus be fast; it can use {@link #status()},
+     * {@link #output()} and {@link #failure()} without blocking, and {@link #await()} this task
+     * returns right away. But it must not wait for another thread which awaits this task, because
+     * await() only returns once all callbacks ran. Exceptions it throws are logged. Callbacks can
+     * be registered before the task is submitted.
+     */
+    public final void whenDone(Runnable runnable) {
+        while (true) {
+            var head = callbacks.get();
+            if (head == DONE) {
+                runnable.run();
+                return;
+            }
+            if (callbacks.compareAndSet(head, new Callback(runnable, head))) return;
+        }
+    }
+
+    /**
+     * Returns a new {@link CompletableFuture} which completes when this task is done, for non
+     * blocking composition, such as {@link CompletableFuture#thenApply}; see also {@link Tasks}.
+     *
+     * <p>It completes exceptionally with the {@link #failure()} if this task {@link
+     * Status#FAILED}, and is cancelled if it was {@link Status#CANCELLED}. Completing or
+     * cancelling the returned future itself has no effect on this task.
+     */
+    public final CompletableFuture<O> toCompletableFuture() {
+        var completableFuture = new CompletableFuture<O>();
+        whenDone(
+                () -> {
+                    switch (status()) {
+                        case COMPLETED -> completableFuture.complete(output().get());
+                        case FAILED -> completableFuture.completeExceptionally(failure().get());
+                        case CANCELLED -> completableFuture.cancel(false);
+                        case PENDING, IN_PROGRESS -> throw new IllegalStateException(toString());
+                    }
+                });
+        return completableFuture;
+    }
+
+    /**
+     * The task from within whose {@link #execute()} this task was submitted; or else the {@link
+     * TaskExecutor#root()} task. Empty while {@link Status#PENDING}.
+     */
+    public final Optional<Task<?, ?>> parent() {
+        return Optional.ofNullable(parent);
+    }
+
+    /**
+     * Tasks which were submitted from within {@link #execute()} of this task, while they run. If
+     * this task fails or is cancelled (incl. timing out), then all of them are cancelled as well
+     * (recursively).
+     */
+    public final Set<Task<?, ?>> children() {
+        return Collections.unmodifiableSet(children);
+    }
+
+    /** A child of a task, which ended; see {@link #endedChildren()}. */
+    public record EndedChild(UUID id, String typeName, Status status, Duration runTime) {}
+
+    /**
+     * The children which already ended, oldest first; only the last {@value
+     * #MAX_ENDED_CHILDREN} of them, but see {@link #endedChildrenCount()} and {@link
+     * #childrenRunTime()}.
+     */
+    public final List<EndedChild> endedChildren() {
+        var ended = endedChildren;
+        if (ended == null) return List.of();
+        synchronized (ended) {
+            return List.copyOf(ended.last);
+        }
+    }
+
+    /** How many children ended, incl. those no longer in {@link #endedChildren()}. */
+    public final long endedChildrenCount() {
+        var ended = endedChildren;
+        if (ended == null) return 0;
+        synchronized (ended) {
+            return ended.count;
+        }
+    }
+
+    /** Sum of the {@link #runTime()} of all children which ended. */
+    public final Duration childrenRunTime() {
+        var ended = endedChildren;
+        if (ended == null) return Duration.ZERO;
+        synchronized (ended) {
+            return Duration.ofNanos(ended.runNanos);
+        }
+    }
+
+    // Guarded by itself
+    private static final class EndedChildren {
+        final ArrayDeque<EndedChild> last = new ArrayDeque<>();
+        long count;
+        long runNanos;
+    }
+
+    // package-private, for TaskExecutor (only)
+    final void parent(Task<?, ?> parent) {
+        this.parent = parent;
+        parent.children.add(this);
+    }
+
+    // package-private, for TaskExecutor (only)
+    final void removeChild(Task<?, ?> child, boolean keepEnded) {
+        children.remove(child);
+        if (!keepEnded) return;
+        var ended = endedChildren;
+        if (ended == null) {
+            synchronized (children) {
+                ended = endedChildren;
+                if (ended == null) endedChildren = ended = new EndedChildren();
+            }
+        }
+        var runTime = child.runTime();
+        var record = new EndedChild(child.id(), child.typeName(), child.status(), runTime);
+        synchronized (ended) {
+            if (ended.last.size() == MAX_ENDED_CHILDREN) ended.last.removeFirst();
+            ended.last.addLast(record);
+            ended.count++;
+            ended.runNanos += runTime.toNanos();
+        }
+    }
+
+    // package-private, for TaskExecutor (only)
+    final void done() {
+        var status = status();
+        if (status == Status.FAILED || status == Status.CANCELLED) {
+            for (var child : children) child.cancel();
+        }
+
+        callbacksThread = Thread.currentThread();
+        try {
+            runCallbacks();
+        } finally {
+            callbacksThread = null;
+        }
+    }
+
+    private void runCallbacks() {
+        // Callbacks may be added concurrently while running them, so repeat until there are none
+        // left; only then set DONE, so that once DONE, all callbacks which were added before ran.
+        while (true) {
+            var head = callbacks.get();
+            if (head == null) {
+                if (callbacks.compareAndSet(null, DONE)) {
+                    var latch = doneLatch;
+                    if (latch != null) latch.countDown();
+                    return;
+                }
+            } else if (callbacks.compareAndSet(head, null)) {
+                Callback reversed = null;
+                for (var c = head; c != null; c = c.next)
+                    reversed = new Callback(c.runnable, reversed);
+                for (var c = reversed; c != null; c = c.next) {
+                    try {
+                        c.runnable.run();
+                    } catch (RuntimeException e) {
+                        LOG.log(Level.SEVERE, "Callback failed for task " + id(), e);
+                    }
+                }
+            }
+        }
+    }
+
+    // Future.get() returns before FutureTask.done(), but await() should only return once the
+    // TaskExecutor is done with the task (e.g. has set its endedAt), and its callbacks ran.
+    private void awaitDone() throws InterruptedException {
+        if (callbacks.get() == DONE || callbacksThread == Thread.currentThread()) return;
+        // Unless the attempt which ran inline failed and is going to be retried later
+        if (future.get() instanceof LoggingFutureTask<?> ft
+                && ft.tryRunInline()
+                && callbacks.get() == DONE) return;
+        // Not just a callback counting down a latch, because whenDone() must run callbacks right
+        // away after await(), so this has to wait until DONE is set (after the last callback).
+        // Not Object.wait(), because that pins a virtual thread to its carrier (before Java 24).
+        var latch = doneLatch;
+        if (latch == null) {
+            synchronized (callbacks) {
+                latch = doneLatch;
+                if (latch == null) doneLatch = latch = new CountDownLatch(1);
+            }
+        }
+        // done() sets DONE before it reads doneLatch, so either it counts down the latch, or this
+        // sees DONE here
+        if (callbacks.get() == DONE) return;
+        var awaited = latch;
+        // On a work-stealing pool thread, the pool can meanwhile start another thread instead.
+        ForkJoinPool.managedBlock(
+                new ForkJoinPool.ManagedBlocker() {
+                    @Override
+                    public boolean block() throws InterruptedException {
+                        awaited.await();
+                        return true;
+                    }
+
+                    @Override
+                    public boolean isReleasable() {
+                        return callbacks.get() == DONE;
+                    }
+                });
+    }
+
+    /**
+     * Creates a new instance of a task class, with a public constructor which takes the input, or
+     * no arguments if the input is {@link Empty}; see {@link Remotable} and {@link Resumable}.
+     */
+    // package-private, for Worker and TaskExecutor.resume() (only)
+    static Task<?, ?> newInstance(String type, Object input) throws ReflectiveOperationException {
+        var taskClass = Class.forName(type).asSubclass(Task.class);
+        for (var constructor : taskClass.getConstructors()) {
+            var parameters = constructor.getParameterTypes();
+            if (parameters.length == 1 && parameters[0].isInstance(input))
+                return (Task<?, ?>) constructor.newInstance(input);
+        }
+        if (input == Empty.INSTANCE) return taskClass.getConstructor().newInstance();
+        throw new NoSuchMethodException(type + " has no public constructor for " + input);
+    }
+
+    // package-private, for StoredTask (only)
+    String typeName() {
+        return getClass().getName();
+    }
 
     public void toString(StringBuilder sb) {
         sb.append("type: Task # ");
-        sb.append(getClass().getName());
+        sb.append(typeName());
 
         sb.append("\nid: ");
         sb.append(id().toString());
@@ -190,11 +697,19 @@ public abstract class Task<I, O> {
         sb.append("\nstatus: ");
         sb.append(status().toString());
 
+        submittedAt().ifPresent(s -> sb.append("\nsubmittedAt: ").append(s.toString()));
         startedAt().ifPresent(s -> sb.append("\nstartedAt: ").append(s.toString()));
         endedAt().ifPresent(e -> sb.append("\nendedAt: ").append(e.toString()));
 
-        sb.append("\nduration: ");
-        sb.append(duration().toString());
+        sb.append("\nqueueWait: ");
+        sb.append(queueWait().toString());
+        sb.append("\nrunTime: ");
+        sb.append(runTime().toString());
+
+        if (attempts > 1) sb.append("\nattempts: ").append(attempts);
+
+        var percent = progress.percent();
+        if (percent >= 0) sb.append("\nprogress: ").append(percent).append('%');
 
         if (!timeout().isZero()) {
             sb.append("\ntimeout: ");
@@ -215,6 +730,27 @@ public abstract class Task<I, O> {
                         });
         failure().ifPresent(t -> sb.append("\nfailure: ").append(t.toString()));
 
+        var ended = endedChildren();
+        if (!children.isEmpty() || !ended.isEmpty()) {
+            sb.append("\nchildren:");
+            var count = endedChildrenCount();
+            if (count > ended.size())
+                sb.append("\n  - … ").append(count - ended.size()).append(" more ended");
+            for (var child : ended) {
+                sb.append("\n  - ").append(child.id().toString());
+                sb.append(" # ").append(child.typeName());
+                sb.append(", ").append(child.status().toString());
+                sb.append(", ").append(child.runTime().toString());
+            }
+            for (var child : children) {
+                sb.append("\n  - ").append(child.id().toString());
+                sb.append(" # ").append(child.typeName());
+                sb.append(", ").append(child.status().toString());
+                sb.append(", ").append(child.runTime().toString());
+            }
+            sb.append("\nchildrenRunTime: ").append(childrenRunTime().toString());
+        }
+
         sb.append("\n");
     }
 
@@ -4,10 +4,21 @@ import java.util.concurrent.Callable;
 
 class TaskCallable<T> implements Callable<T> {
 
+    private static final ThreadLocal<Task<?, ?>> CURRENT = new ThreadLocal<>();
+
     private final Task<?, T> task;
+    private final /*TODO @Nullable*/ ActionCache cache;
+    private final /*TODO @Nullable*/ WorkerPool workers;
 
-    TaskCallable(Task<?, T> task) {
+    TaskCallable(Task<?, T> task, ActionCache cache, WorkerPool workers) {
         this.task = task;
+        this.cache = cache;
+        this.workers = workers;
+    }
+
+    /** The task whose {@link Task#execute()} is running on the current thread, if any. */
+    static /*TODO @Nullable*/ Task<?, ?> current() {
+        return CURRENT.get();
     }
 
     @Override
@@ -15,15 +26,37 @@ class TaskCallable<T> implements Callable<T> {
         var thread = Thread.currentThread();
         var originalThreadName = thread.getName();
         thread.setName(task.id().toString());
+        var originalTask = CURRENT.get();
+        CURRENT.set(task);
+        task.started();
+        TaskEvents.commit(new TaskEvents.Started(), task);
 
         try {
-            var output = task.execute();
-            if (output == null)
-                throw new NullPointerException("Task.execute() must not return null: " + task.id());
-            return output;
+            if (cache != null && task instanceof Cacheable cacheable) {
+                var key = cache.key(task, cacheable);
+                var cached = cache.get(key);
+                if (cached.isPresent()) {
+                    @SuppressWarnings("unchecked")
+                    var output = (T) cached.get();
+                    return output;
+                }
+                var output = execute();
+                cache.put(key, output);
+                return output;
+            }
+            return execute();
 
         } finally {
+            CURRENT.set(originalTask);
             thread.setName(originalThreadName);
         }
     }
+
+    private T execute() throws Exception {
+        var remote = workers != null && task instanceof Remotable;
+        var output = remote ? workers.execute(task) : task.execute();
+        if (output == null)
+            throw new NullPointerException("Task.execute() must not return null: " + task.id());
+        return output;
+    }
 }
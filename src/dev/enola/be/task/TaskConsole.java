@@ -0,0 +1,163 @@
+package dev.enola.be.task;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import dev.enola.be.io.LineWriter;
+import dev.enola.common.concurrent.Executors;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Shows the {@link Task#out()} of many tasks which run in parallel on one {@link LineWriter}, see
+ * {@link TaskExecutor.Builder#console(TaskConsole)}; a bit like Bazel shows its actions.
+ *
+ * <p>In the {@link Mode#PREFIXED} mode, each line is written as soon as it is printed, prefixed
+ * with the task that printed it. In the other modes, lines are only kept in the {@link
+ * Task#outputTail()} of each task, and every so often a status of the running tasks, with the last
+ * line of each, is written instead; when a task fails, its entire tail is written. Writing to a
+ * terminal then does not slow down the tasks, no matter how much they print.
+ */
+public final class TaskConsole implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(TaskConsole.class.getName());
+
+    private static final int MAX_SHOWN = 10;
+    private static final int MAX_LINE_LENGTH = 120;
+
+    public enum Mode {
+        /** Write each line as it is printed, prefixed with its task. */
+        PREFIXED,
+
+        /** Append a status of the running tasks every so often. */
+        SUMMARY,
+
+        /** Redraw a status of the running tasks in place, with ANSI escape codes (for terminals). */
+        LIVE
+    }
+
+    private final LineWriter out;
+    private final Mode mode;
+    private final Set<Task<?, ?>> running = ConcurrentHashMap.newKeySet();
+    private final /*TODO @Nullable*/ ScheduledExecutorService refresher;
+
+    // Guarded by this; how many lines the LIVE status currently takes, and the ANSI escape codes
+    // to erase it, which are written before the next line (as LineWriter can only write lines)
+    private int drawn;
+    private String erase = "";
+
+    /**
+     * Constructor.
+     *
+     * @param out where to write to, e.g. {@link dev.enola.be.io.ChannelLineWriter#stdout()}
+     * @param mode how to show the output of the tasks
+     * @param refreshInterval how often to write the status, unless {@link Mode#PREFIXED}
+     */
+    public TaskConsole(LineWriter out, Mode mode, Duration refreshInterval) {
+        this.out = out;
+        this.mode = mode;
+        if (mode == Mode.PREFIXED) refresher = null;
+        else {
+            refresher = Executors.newSingleThreadScheduledExecutor("TaskConsole", LOG);
+            var m = refreshInterval.toMillis();
+            refresher.scheduleAtFixedRate(this::refresh, m, m, MILLISECONDS);
+        }
+    }
+
+    // package-private, for Task.out() (only); the line is already in its outputTail()
+    void println(Task<?, ?> task, Object line) throws IOException {
+        if (mode != Mode.PREFIXED) {
+            if (!running.contains(task)) running.add(task);
+            return;
+        }
+        synchronized (this) {
+            write(prefix(task) + " " + line);
+            out.flush();
+        }
+    }
+
+    // package-private, for TaskExecutor (only); this is the only place which removes from running,
+    // as a task's status() is already terminal a bit before this is called
+    void ended(Task<?, ?> task) {
+        running.remove(task);
+        if (mode == Mode.PREFIXED || task.status() != Status.FAILED) return;
+        var tail = task.outputTail().orElse(null);
+        if (tail == null) return;
+        try {
+            synchronized (this) {
+                erase();
+                var dropped = tail.dropped();
+                var header = prefix(task) + " FAILED, output";
+                if (dropped > 0) header += " (without the first " + dropped + " lines)";
+                write(header + ":");
+                for (var line : tail.lines()) write(line);
+                out.flush();
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to write output of " + task.id(), e);
+        }
+    }
+
+    private void refresh() {
+        var tasks = new ArrayList<Task<?, ?>>();
+        for (var task : running) if (!task.status().isTerminal()) tasks.add(task);
+        tasks.sort(Comparator.comparingLong(Task::sequence));
+        try {
+            synchronized (this) {
+                erase();
+                if (tasks.isEmpty()) return;
+                var lines = new ArrayList<String>();
+                lines.add(tasks.size() + " tasks running:");
+                for (var task : tasks.subList(0, Math.min(MAX_SHOWN, tasks.size()))) {
+                    var last = task.outputTail().flatMap(tail -> tail.last()).orElse("");
+                    if (last.length() > MAX_LINE_LENGTH)
+                        last = last.substring(0, MAX_LINE_LENGTH - 1) + "…";
+                    lines.add("  " + prefix(task) + " " + last);
+                }
+                if (tasks.size() > MAX_SHOWN)
+                    lines.add("  … and " + (tasks.size() - MAX_SHOWN) + " more");
+                for (var line : lines) write(line);
+                out.flush();
+                if (mode == Mode.LIVE) drawn = lines.size();
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to write status", e);
+        }
+    }
+
+    // Moves the cursor up to the start of the LIVE status, and clears it, before the next line
+    private void erase() {
+        if (drawn == 0) return;
+        erase = "\033[" + drawn + "F\033[J";
+        drawn = 0;
+    }
+
+    private void write(String line) throws IOException {
+        out.println(erase + line);
+        erase = "";
+    }
+
+    private static String prefix(Task<?, ?> task) {
+        var type = task.typeName();
+        var name = type.substring(Math.max(type.lastIndexOf('.'), type.lastIndexOf('$')) + 1);
+        return "[" + name + "#" + task.sequence() + "]";
+    }
+
+    /** Stops writing the status, and clears it if it was {@link Mode#LIVE}. */
+    @Override
+    public void close() throws IOException {
+        if (refresher != null) refresher.close();
+        synchronized (this) {
+            erase();
+            if (!erase.isEmpty()) write("");
+            out.flush();
+        }
+    }
+}
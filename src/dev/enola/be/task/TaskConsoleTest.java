@@ -0,0 +1,146 @@
+package dev.enola.be.task;
+
+import static ch.vorburger.test.Assert.assertTrue;
+
+import dev.enola.be.io.LineWriter;
+import dev.enola.be.io.TailBuffer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TaskConsoleTest {
+
+    public static void main(String[] args) throws Exception {
+        testTailBuffer();
+        testOutputTail();
+        testPrefixed();
+        testSummaryDumpsFailed();
+        testDumpsAllFailed();
+    }
+
+    /** Prints lines 0..n-1, and then fails if asked to; or waits until released. */
+    private static class PrintingTask extends Task<Integer, Empty> {
+        final boolean fail;
+        final CountDownLatch release = new CountDownLatch(1);
+
+        PrintingTask(int lines, boolean fail) {
+            super(lines);
+            this.fail = fail;
+        }
+
+        @Override
+        public int outputTailLines() {
+            return 3;
+        }
+
+        @Override
+        protected Empty execute() throws Exception {
+            for (int i = 0; i < input; i++) out().println("line " + i);
+            if (fail) throw new RuntimeException("Intentional failure");
+            release.await();
+            return Empty.INSTANCE;
+        }
+    }
+
+    private static void testTailBuffer() throws Exception {
+        var tail = new TailBuffer(2);
+        assertTrue(tail.last().isEmpty() && tail.lines().isEmpty(), "Should be empty");
+        tail.println("a");
+        assertTrue(tail.lines().equals(List.of("a")), "lines: " + tail.lines());
+        tail.println("b");
+        tail.println("Grüezi");
+        assertTrue(tail.lines().equals(List.of("b", "Grüezi")), "lines: " + tail.lines());
+        assertTrue(tail.last().get().equals("Grüezi"), "last");
+        assertTrue(tail.total() == 3 && tail.dropped() == 1, "total & dropped");
+    }
+
+    private static void testOutputTail() throws Exception {
+        var task = new PrintingTask(5, false);
+        assertTrue(task.outputTail().isEmpty(), "Nothing printed yet");
+        try (var executor = new TaskExecutor()) {
+            executor.async(task);
+            task.release.countDown();
+            task.await();
+        }
+        var lines = task.outputTail().get().lines();
+        assertTrue(lines.equals(List.of("line 2", "line 3", "line 4")), "lines: " + lines);
+    }
+
+    private static void testPrefixed() throws Exception {
+        var written = new CopyOnWriteArrayList<String>();
+        var mode = TaskConsole.Mode.PREFIXED;
+        LineWriter out = line -> written.add(line.toString());
+        try (var console = new TaskConsole(out, mode, Duration.ofSeconds(1));
+                var executor = new TaskExecutor.Builder().console(console).build()) {
+            var task = new PrintingTask(2, false);
+            executor.async(task);
+            task.release.countDown();
+            task.await();
+            var prefix = "[PrintingTask#" + task.sequence() + "] ";
+            assertTrue(
+                    written.equals(List.of(prefix + "line 0", prefix + "line 1")),
+                    "written: " + written);
+        }
+    }
+
+    private static void testSummaryDumpsFailed() throws Exception {
+        var written = new CopyOnWriteArrayList<String>();
+        var mode = TaskConsole.Mode.SUMMARY;
+        LineWriter out = line -> written.add(line.toString());
+        try (var console = new TaskConsole(out, mode, Duration.ofMillis(10));
+                var executor = new TaskExecutor.Builder().console(console).build()) {
+            var running = new PrintingTask(1, false);
+            executor.async(running);
+            var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!written.contains("1 tasks running:")) {
+                assertTrue(System.nanoTime() < deadline, "No status: " + written);
+                Thread.sleep(1);
+            }
+            var prefix = "[PrintingTask#" + running.sequence() + "] ";
+            assertTrue(written.contains("  " + prefix + "line 0"), "written: " + written);
+            running.release.countDown();
+            running.await();
+
+            var failing = new PrintingTask(5, true);
+            try {
+                executor.await(failing);
+            } catch (RuntimeException e) {
+                // Expected
+            }
+            prefix = "[PrintingTask#" + failing.sequence() + "] ";
+            var header = prefix + "FAILED, output (without the first 2 lines):";
+            var index = written.indexOf(header);
+            assertTrue(index >= 0, "No dump: " + written);
+            assertTrue(
+                    written.subList(index + 1, index + 4)
+                            .equals(List.of("line 2", "line 3", "line 4")),
+                    "written: " + written);
+        }
+    }
+
+    // The refresher sees tasks as FAILED before they end; that must not skip their dump
+    private static void testDumpsAllFailed() throws Exception {
+        var written = new CopyOnWriteArrayList<String>();
+        var mode = TaskConsole.Mode.SUMMARY;
+        LineWriter out = line -> written.add(line.toString());
+        var tasks = new ArrayList<PrintingTask>();
+        for (int i = 0; i < 500; i++) tasks.add(new PrintingTask(1, true));
+        try (var console = new TaskConsole(out, mode, Duration.ofMillis(1));
+                var executor = new TaskExecutor.Builder().console(console).build()) {
+            executor.asyncAll(tasks);
+            for (var task : tasks) {
+                try {
+                    task.await();
+                } catch (RuntimeException e) {
+                    // Expected
+                }
+            }
+        }
+        var dumps = written.stream().filter(line -> line.endsWith("FAILED, output:")).count();
+        assertTrue(dumps == tasks.size(), "dumps: " + dumps);
+    }
+}
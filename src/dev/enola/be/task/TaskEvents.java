@@ -0,0 +1,88 @@
+package dev.enola.be.task;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * <a href="https://docs.oracle.com/en/java/javase/21/jfapi/">Java Flight Recorder</a> events of
+ * the lifecycle of tasks in a {@link TaskExecutor}.
+ *
+ * <p>They are recorded whenever a recording is running, e.g. if started with <code>
+ * -XX:StartFlightRecording</code> or <code>jcmd PID JFR.start</code>. Events are only filled in and
+ * committed if enabled, so when no recording is running, they cost (almost) nothing.
+ */
+final class TaskEvents {
+
+    @Category({"Enola", "Task"})
+    @StackTrace(false)
+    abstract static class TaskEvent extends Event {
+
+        @Label("Task Class")
+        Class<?> taskClass;
+
+        @Label("Task ID")
+        String id;
+
+        @Label("Status")
+        String status;
+
+        @Label("Queued Time")
+        @Description("From submission until start (or until now, if not started yet)")
+        @Timespan
+        long queued;
+
+        @Label("Running Time")
+        @Description("From start until end (or until now, if not ended yet)")
+        @Timespan
+        long running;
+    }
+
+    @Name("dev.enola.be.task.Submitted")
+    @Label("Task Submitted")
+    static final class Submitted extends TaskEvent {}
+
+    @Name("dev.enola.be.task.Started")
+    @Label("Task Started")
+    static final class Started extends TaskEvent {}
+
+    @Name("dev.enola.be.task.Ended")
+    @Label("Task Ended")
+    @Description("Task completed, failed, or was cancelled")
+    static final class Ended extends TaskEvent {}
+
+    @Name("dev.enola.be.task.TimedOut")
+    @Label("Task Timed Out")
+    @Description("Task is being cancelled because it ran longer than its timeout")
+    static final class TimedOut extends TaskEvent {}
+
+    @Name("dev.enola.be.task.Retrying")
+    @Label("Task Retrying")
+    @Description("Attempt failed, and the task will be run again after a backoff")
+    static final class Retrying extends TaskEvent {}
+
+    @Name("dev.enola.be.task.Cancelled")
+    @Label("Task Cancelled")
+    static final class Cancelled extends TaskEvent {}
+
+    @Name("dev.enola.be.task.Evicted")
+    @Label("Task Evicted")
+    @Description("Completed task was removed from memory (and put into the store, if any)")
+    static final class Evicted extends TaskEvent {}
+
+    static void commit(TaskEvent event, Task<?, ?> task) {
+        if (!event.isEnabled()) return;
+        event.taskClass = task.getClass();
+        event.id = task.id().toString();
+        event.status = task.status().name();
+        event.queued = task.queueWait().toNanos();
+        event.running = task.runTime().toNanos();
+        event.commit();
+    }
+
+    private TaskEvents() {}
+}
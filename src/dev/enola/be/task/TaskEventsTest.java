@@ -0,0 +1,65 @@
+package dev.enola.be.task;
+
+import static ch.vorburger.test.Assert.assertTrue;
+
+import dev.enola.be.task.test.ImmediateTask;
+import dev.enola.be.task.test.SlowTask;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.HashMap;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class TaskEventsTest {
+
+    public static void main(String[] args) throws Exception {
+        testEvents();
+    }
+
+    private static void testEvents() throws Exception {
+        var file = Files.createTempFile("TaskEventsTest", ".jfr");
+        var completed = new ImmediateTask("completed");
+        var timingOut = new SlowTask("timingOut", 5000, Duration.ofMillis(10));
+        try (var recording = new Recording()) {
+            recording.start();
+            try (var executor =
+                    new TaskExecutor.Builder()
+                            .completedTaskEvictionInterval(Duration.ofMillis(10))
+                            .completedTaskRetention(Duration.ZERO)
+                            .build()) {
+                executor.await(completed);
+                executor.async(timingOut);
+                while (executor.list().contains(completed.id())) Thread.sleep(10);
+                while (!timingOut.status().isTerminal()) Thread.sleep(10);
+            }
+            recording.stop();
+            recording.dump(file);
+        }
+
+        var events = new HashMap<String, RecordedEvent>();
+        for (var event : RecordingFile.readAllEvents(file)) {
+            var name = event.getEventType().getName();
+            if (!name.startsWith("dev.enola.be.task.")) continue;
+            events.put(name.substring(18) + " " + event.getString("id"), event);
+        }
+        Files.delete(file);
+
+        var id = completed.id().toString();
+        for (var type : new String[] {"Submitted", "Started", "Ended", "Evicted"})
+            assertTrue(events.containsKey(type + " " + id), type + " missing: " + events.keySet());
+        var ended = events.get("Ended " + id);
+        assertTrue("COMPLETED".equals(ended.getString("status")), "status: " + ended);
+        var taskClass = ended.getClass("taskClass").getName();
+        assertTrue(taskClass.equals(ImmediateTask.class.getName()), "taskClass: " + taskClass);
+        assertTrue(ended.getDuration("running").toNanos() > 0, "running: " + ended);
+
+        id = timingOut.id().toString();
+        for (var type : new String[] {"TimedOut", "Cancelled", "Ended"})
+            assertTrue(events.containsKey(type + " " + id), type + " missing: " + events.keySet());
+        ended = events.get("Ended " + id);
+        assertTrue("CANCELLED".equals(ended.getString("status")), "status: " + ended);
+    }
+}
@@ -1,33 +1,89 @@
 package dev.enola.be.task;
 
+import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
+import dev.enola.common.concurrent.CoalescingPublisher;
+import dev.enola.common.concurrent.ConcurrentLongMap;
 import dev.enola.common.concurrent.Executors;
+import dev.enola.common.concurrent.HashedWheelTimer;
+import dev.enola.common.concurrent.HashedWheelTimer.Timeout;
 
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.time.Duration;
-import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class TaskExecutor implements AutoCloseable {
 
     private static final Logger LOG = Logger.getLogger(TaskExecutor.class.getName());
 
-    // TODO Synthetic "root" task, to which all running tasks are children?
-    // This could be useful for managing task hierarchies and dependencies.
+    // Synthetic root task, of which all running tasks which were not submitted from within another
+    // task are children. It is IN_PROGRESS until close() cancels it, which cascades to all tasks.
+    private final Task<Empty, Empty> root = new RootTask();
+
+    private static final class RootTask extends TaskWithoutInputOutput {
+        @Override
+        protected void executeIt() {
+            throw new UnsupportedOperationException("Root task cannot be executed");
+        }
+    }
 
     // This map has a basic time-based eviction policy; see constructor.
-    // A more sophisticated implementation could persist completed tasks, so that get()
-    // can still find them later, with a separate eviction policy for that persistent store.
-    private final Map<UUID, Task<?, ?>> tasks = new ConcurrentHashMap<>();
+    // Evicted tasks are put into the (optional) store, so that get() can still find them later;
+    // that store has its own separate eviction policy.
+    // Keyed by Task.sequence(), which is cheaper than its UUID id()
+    private final ConcurrentLongMap<Task<?, ?>> tasks = new ConcurrentLongMap<>();
+    // Of these, those which were started and are not done yet; for watchProgress()
+    private final ConcurrentLongMap<Task<?, ?>> running = new ConcurrentLongMap<>();
+    private final /*TODO @Nullable*/ TaskStore store;
+    private final /*TODO @Nullable*/ ActionCache cache;
+    private final /*TODO @Nullable*/ WorkerPool workers;
+    private final /*TODO @Nullable*/ Checkpoints checkpoints;
+    private final /*TODO @Nullable*/ TaskConsole console;
+
+    // Tasks are added when they are done, so this is (very nearly) ordered by their endedAt, and
+    // eviction only ever has to look at its head, instead of scanning all tasks.
+    private final Queue<Task<?, ?>> completed = new ConcurrentLinkedQueue<>();
+
+    // How often storing a task failed, so that after MAX_STORE_ATTEMPTS it's evicted without it
+    private static final int MAX_STORE_ATTEMPTS = 3;
+    private final Map<Task<?, ?>, Integer> storeFailures = new ConcurrentHashMap<>();
+    private final Duration completedTaskRetention;
 
     // Nota bene: In *THEORY* we should *NEVER* have *ANY* uncaught exceptions from Task,
     // because any exception thrown by the task's `execute()` method would be caught and
@@ -37,72 +93,618 @@ public class TaskExecutor implements AutoCloseable {
     // just because "swallowed" lost exceptions are seriously the worst kind of bugs to diagnose!
     private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor(LOG);
 
-    private final ScheduledExecutorService timeoutScheduler =
-            Executors.newSingleThreadScheduledExecutor("TaskExecutor-Timeout", LOG);
+    // For Task.cpuBound() tasks; its threads are only started when there are such tasks
+    private final ForkJoinPool cpuPool = Executors.newWorkStealingPool("TaskExecutor-CPU", LOG);
+
+    // Most tasks complete long before their timeout, so they are cancelled when a task is done;
+    // 10ms * 512 covers timeouts up to ~5s without any additional rounds. Also used to wait
+    // between retries, see RetryPolicy. A timeout runs all of done(), incl. whenDone() callbacks,
+    // which must not hold up other timeouts; so they run on virtual threads, not on the ticker.
+    private final HashedWheelTimer timeouts =
+            new HashedWheelTimer(
+                    "TaskExecutor-Timeout", LOG, Duration.ofMillis(10), 512, executor);
 
+    private volatile boolean closed;
+
+    // How many tasks asyncAll() hands over to another thread to start at once, see startInChunks()
+    private static final int START_CHUNK_SIZE = 1024;
+
+    // This is also used for watchProgress()
     private final ScheduledExecutorService cleanupScheduler =
             Executors.newSingleThreadScheduledExecutor("TaskExecutor-Cleanup", LOG);
 
-    public TaskExecutor(Duration completedTaskEvictionInterval) {
-        if (completedTaskEvictionInterval == null) {
-            throw new IllegalArgumentException("completedTaskEvictionInterval must not be null");
+    private final TaskScheduler scheduler;
+
+    private final CoalescingPublisher<UUID, StatusChange> statusChanges;
+
+    /** What {@link TaskExecutor#async(Task)} does when too many tasks wait to be started. */
+    public enum QueueFull {
+        /** Block the caller until enough submitted tasks started. */
+        BLOCK,
+
+        /** Throw a {@link RejectedExecutionException}. */
+        REJECT
+    }
+
+    public static class Builder {
+        private Duration completedTaskEvictionInterval = Duration.ofHours(1);
+        private Duration completedTaskRetention;
+        private int maxConcurrency = Integer.MAX_VALUE;
+        private final Map<Class<?>, Integer> maxConcurrencyPerType = new HashMap<>();
+        private final Map<String, Integer> shares = new HashMap<>();
+        private int maxQueued = Integer.MAX_VALUE;
+        private QueueFull whenQueueFull = QueueFull.BLOCK;
+        private TaskStore store;
+        private ActionCache cache;
+        private WorkerPool workers;
+        private Path checkpoints;
+        private TaskConsole console;
+        private int statusChangesBufferSize = 1024;
+
+        public Builder completedTaskEvictionInterval(Duration completedTaskEvictionInterval) {
+            if (completedTaskEvictionInterval == null) {
+                throw new IllegalArgumentException(
+                        "completedTaskEvictionInterval must not be null");
+            }
+            if (completedTaskEvictionInterval.isNegative()
+                    || completedTaskEvictionInterval.isZero()) {
+                throw new IllegalArgumentException(
+                        "completedTaskEvictionInterval must be positive");
+            }
+            this.completedTaskEvictionInterval = completedTaskEvictionInterval;
+            return this;
+        }
+
+        /**
+         * Minimum time for which completed tasks are kept in memory, after they ended. Default is
+         * the {@link #completedTaskEvictionInterval(Duration)}.
+         */
+        public Builder completedTaskRetention(Duration completedTaskRetention) {
+            requireNonNull(completedTaskRetention, "completedTaskRetention");
+            if (completedTaskRetention.isNegative())
+                throw new IllegalArgumentException("completedTaskRetention must not be negative");
+            this.completedTaskRetention = completedTaskRetention;
+            return this;
+        }
+
+        /**
+         * Limits how many tasks run at the same time, as the sum of their {@link Task#weight()}.
+         * Default is unlimited.
+         */
+        public Builder maxConcurrency(int maxWeight) {
+            this.maxConcurrency = positive(maxWeight, "maxConcurrency");
+            return this;
+        }
+
+        /** Limits how many tasks of exactly the given class run at the same time. */
+        public Builder maxConcurrency(Class<? extends Task<?, ?>> type, int max) {
+            this.maxConcurrencyPerType.put(type, positive(max, "maxConcurrency"));
+            return this;
+        }
+
+        /**
+         * Relative share of the executor for tasks of the given {@link Task#shareGroup()}, when
+         * there are more tasks than the concurrency limits permit to run. E.g. a group with share 3
+         * gets to start 3 times as many tasks (or rather, {@link Task#weight()}) as one with share
+         * 1, which is the default. (Tasks of higher {@link Task#priority()} always start first.)
+         */
+        public Builder share(String shareGroup, int share) {
+            this.shares.put(requireNonNull(shareGroup, "shareGroup"), positive(share, "share"));
+            return this;
         }
-        if (completedTaskEvictionInterval.isNegative() || completedTaskEvictionInterval.isZero()) {
-            throw new IllegalArgumentException("completedTaskEvictionInterval must be positive");
+
+        /**
+         * Limits how many submitted tasks may wait to be started, either because their {@link
+         * Task#dependencies()} have not completed yet, or because of the concurrency limits. When
+         * that is reached, {@link TaskExecutor#async(Task)} does what {@link #whenQueueFull} says.
+         * Default is unlimited.
+         */
+        public Builder maxQueued(int maxQueued) {
+            this.maxQueued = positive(maxQueued, "maxQueued");
+            return this;
+        }
+
+        public Builder whenQueueFull(QueueFull whenQueueFull) {
+            this.whenQueueFull = requireNonNull(whenQueueFull, "whenQueueFull");
+            return this;
+        }
+
+        /**
+         * Store into which completed tasks are put when they are evicted, and from which {@link
+         * TaskExecutor#get(UUID)} and {@link TaskExecutor#list()} then obtain them. The store is
+         * not closed by the {@link TaskExecutor}. Default is none.
+         */
+        public Builder store(TaskStore store) {
+            this.store = requireNonNull(store, "store");
+            return this;
+        }
+
+        /**
+         * Cache for the outputs of {@link Cacheable} tasks; on a hit, {@link Task#execute()} is not
+         * called at all. Default is none.
+         */
+        public Builder cache(ActionCache cache) {
+            this.cache = requireNonNull(cache, "cache");
+            return this;
+        }
+
+        /**
+         * Pool of worker JVMs in which {@link Remotable} tasks are run. The pool is not closed by
+         * the {@link TaskExecutor}. Default is none, i.e. they run in this JVM like all others.
+         */
+        public Builder workers(WorkerPool workers) {
+            this.workers = requireNonNull(workers, "workers");
+            return this;
+        }
+
+        /**
+         * Directory in which {@link Resumable} tasks save their {@link
+         * Task#checkpoint(java.io.Serializable)}s, from which {@link TaskExecutor#resume()} resumes
+         * them after a restart; it is created if needed. Default is none, i.e. they are not saved.
+         */
+        public Builder checkpoints(Path directory) {
+            this.checkpoints = requireNonNull(directory, "checkpoints");
+            return this;
+        }
+
+        /**
+         * Console on which the {@link Task#out()} of running tasks is shown, and that of failed
+         * tasks is dumped. The console is not closed by the {@link TaskExecutor}. Default is none,
+         * i.e. it is only kept in their {@link Task#outputTail()}.
+         */
+        public Builder console(TaskConsole console) {
+            this.console = requireNonNull(console, "console");
+            return this;
         }
-        var m = completedTaskEvictionInterval.toMillis();
+
+        /**
+         * How many {@link TaskExecutor#statusChanges()} are buffered for each subscriber which
+         * does not keep up, see {@link CoalescingPublisher}. Default is 1024.
+         */
+        public Builder statusChangesBufferSize(int bufferSize) {
+            this.statusChangesBufferSize = positive(bufferSize, "statusChangesBufferSize");
+            return this;
+        }
+
+        private static int positive(int value, String name) {
+            if (value < 1) throw new IllegalArgumentException(name + " must be positive");
+            return value;
+        }
+
+        public TaskExecutor build() {
+            return new TaskExecutor(this);
+        }
+    }
+
+    private TaskExecutor(Builder builder) {
+        root.future(
+                new FutureTask<>(() -> Empty.INSTANCE) {
+                    @Override
+                    protected void done() {
+                        root.ended();
+                        root.done();
+                    }
+                });
+        root.started();
+        store = builder.store;
+        cache = builder.cache;
+        workers = builder.workers;
+        console = builder.console;
+        try {
+            checkpoints = builder.checkpoints != null ? new Checkpoints(builder.checkpoints) : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create " + builder.checkpoints, e);
+        }
+        completedTaskRetention =
+                builder.completedTaskRetention != null
+                        ? builder.completedTaskRetention
+                        : builder.completedTaskEvictionInterval;
+        scheduler =
+                new TaskScheduler(
+                        this::run,
+                        builder.maxConcurrency,
+                        builder.maxConcurrencyPerType,
+                        builder.shares,
+                        builder.maxQueued,
+                        builder.whenQueueFull);
+        statusChanges =
+                new CoalescingPublisher<>(
+                        "TaskExecutor-Status", StatusChange::id, builder.statusChangesBufferSize);
+        var m = builder.completedTaskEvictionInterval.toMillis();
         cleanupScheduler.scheduleAtFixedRate(this::evictCompletedTasks, m, m, MILLISECONDS);
     }
 
+    public TaskExecutor(Duration completedTaskEvictionInterval) {
+        this(new Builder().completedTaskEvictionInterval(completedTaskEvictionInterval));
+    }
+
     public TaskExecutor() {
-        this(Duration.ofHours(1));
+        this(new Builder());
     }
 
-    private void evictCompletedTasks() {
-        tasks.values().removeIf(task -> task.status().isTerminal());
+    // package-private, for TaskExecutorTest (only)
+    TaskScheduler scheduler() {
+        return scheduler;
     }
 
-    private static class LoggingFutureTask<V> extends FutureTask<V> {
-        private final Task<?, V> task;
+    // package-private, for TaskExecutorBenchmark (only)
+    void evictCompletedTasks() {
+        var evictBefore = System.nanoTime() - completedTaskRetention.toNanos();
+        var failed = new ArrayList<Task<?, ?>>();
+        Task<?, ?> task;
+        while ((task = completed.peek()) != null) {
+            if (task.endedNanos() - evictBefore > 0) break;
+            completed.poll();
+            if (!stored(task)) {
+                failed.add(task);
+                continue;
+            }
+            tasks.remove(task.sequence(), task);
+            TaskEvents.commit(new TaskEvents.Evicted(), task);
+        }
+        // Behind the tasks which are not old enough yet, so that one which can't be stored does
+        // not hold up the eviction of all others; it's retried on the next eviction(s)
+        completed.addAll(failed);
+    }
+
+    private boolean stored(Task<?, ?> task) {
+        if (store == null) return true;
+        try {
+            store.put(task);
+        } catch (IOException | RuntimeException e) {
+            var attempts = storeFailures.merge(task, 1, Integer::sum);
+            if (attempts < MAX_STORE_ATTEMPTS) {
+                LOG.log(Level.WARNING, "Failed to store task " + task.id() + ", will retry", e);
+                return false;
+            }
+            LOG.log(Level.SEVERE, "Failed to store task " + task.id() + ", evicting it anyway", e);
+        }
+        storeFailures.remove(task);
+        return true;
+    }
+
+    // package-private, for Task.checkpoint() (only)
+    void checkpoint(Task<?, ?> task, Serializable state) throws IOException {
+        if (checkpoints == null) return;
+        checkpoints.save(task, state);
+        // If it ended meanwhile, e.g. was cancelled, then done() may have deleted it before
+        if (task.status().isTerminal() && !keepCheckpoint(task)) deleteCheckpoint(task);
+    }
+
+    // Tasks which were cancelled because this executor was closed can still be resumed
+    private boolean keepCheckpoint(Task<?, ?> task) {
+        return closed && task.status() == Status.CANCELLED;
+    }
+
+    private void saveCheckpoint(Task<?, ?> task, /*TODO @Nullable*/ Serializable state) {
+        try {
+            checkpoints.save(task, state);
+        } catch (IOException | RuntimeException e) {
+            // It still runs, it just cannot be resumed (unless it checkpoints itself later)
+            LOG.log(Level.SEVERE, "Failed to save checkpoint of task " + task.id(), e);
+        }
+    }
 
-        public LoggingFutureTask(Callable<V> callable, Task<?, V> task) {
+    private void deleteCheckpoint(Task<?, ?> task) {
+        if (checkpoints == null) return;
+        try {
+            checkpoints.delete(task.id());
+        } catch (IOException e) {
+            // It would be resumed again, so better a loud log
+            LOG.log(Level.SEVERE, "Failed to delete checkpoint of task " + task.id(), e);
+        }
+    }
+
+    // package-private, for TaskScheduler
+    static class LoggingFutureTask<V> extends FutureTask<V> {
+        final Task<?, V> task;
+        private final TaskExecutor executor;
+
+        // Guarded by the TaskScheduler's lock
+        long sequence;
+        int priority;
+        int weight;
+        boolean started;
+
+        private volatile Timeout timeout;
+
+        // If it was run on the work-stealing pool, see Task.cpuBound()
+        private volatile /*TODO @Nullable*/ ForkJoinTask<?> forked;
+
+        // Guarded by this, see publishStatusChange()
+        private boolean submittedPublished;
+
+        LoggingFutureTask(Callable<V> callable, Task<?, V> task, TaskExecutor executor) {
             super(callable);
             this.task = task;
+            this.executor = executor;
+        }
+
+        // Failures of previous attempts, see setException()
+        private /*TODO @Nullable*/ List<Throwable> previousFailures;
+
+        // Failure of the attempt which is just ending, if it is to be retried; see run()
+        private /*TODO @Nullable*/ Throwable retrying;
+
+        void fork(Task<?, ?> subtask) {
+            executor.async(subtask);
+        }
+
+        void checkpoint(Serializable state) throws IOException {
+            executor.checkpoint(task, state);
+        }
+
+        void print(Object line) throws IOException {
+            if (executor.console != null) executor.console.println(task, line);
+        }
+
+        /**
+         * Runs it on the current thread, if it was queued on the work-stealing pool by this very
+         * thread, and has not started (or been stolen) yet; like {@link ForkJoinTask#join()}.
+         */
+        boolean tryRunInline() {
+            var forked = this.forked;
+            if (forked == null || !forked.tryUnfork()) return false;
+            forked.invoke();
+            return true;
+        }
+
+        void fail(Throwable cause) {
+            super.setException(cause); // i.e. without retrying
+        }
+
+        // FutureTask.run() calls this if the callable throws; not passing it on to the super
+        // class keeps this FutureTask NEW, so that it can be run() again for the next attempt.
+        @Override
+        protected void setException(Throwable failure) {
+            var attempt = task.attempts();
+            if (!isDone() && !executor.closed && task.retryPolicy().retries(attempt, failure)) {
+                if (previousFailures == null) previousFailures = new ArrayList<>();
+                previousFailures.add(failure);
+                retrying = failure;
+                return;
+            }
+            if (previousFailures != null)
+                for (var previous : previousFailures)
+                    if (previous != failure) failure.addSuppressed(previous);
+            super.setException(failure);
+        }
+
+        // The retry is only scheduled once super.run() returned, because until then it is still
+        // the runner of this FutureTask, and running it again (e.g. after a zero backoff) would
+        // do nothing; the task would then never end.
+        @Override
+        public void run() {
+            super.run();
+            var failure = retrying;
+            if (failure != null) {
+                retrying = null;
+                executor.retry(this, failure);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (!super.cancel(mayInterruptIfRunning)) return false;
+            TaskEvents.commit(new TaskEvents.Cancelled(), task);
+            return true;
         }
 
         @Override
         protected void done() {
-            task.endedAt(Instant.now());
-            LOG.fine(() -> task.toString());
+            executor.done(this);
+        }
+    }
+
+    private void done(LoggingFutureTask<?> futureTask) {
+        var task = futureTask.task;
+        task.ended();
+        var timeout = futureTask.timeout;
+        if (timeout != null) timeout.cancel();
+        scheduler.finished(futureTask);
+        running.remove(task.sequence(), task);
+        // All tasks would contend on the root to keep its ended children, so it doesn't
+        task.parent().ifPresent(parent -> parent.removeChild(task, parent != root));
+        completed.add(task);
+        TaskEvents.commit(new TaskEvents.Ended(), task);
+        publishStatusChange(futureTask, true);
+        if (console != null) console.ended(task);
+        if (task instanceof Resumable<?> && !keepCheckpoint(task)) deleteCheckpoint(task);
+        if (LOG.isLoggable(Level.FINE)) LOG.fine(task.toString());
+        task.done();
+    }
+
+    // A task which is cancelled while it is being submitted could end before its submission is
+    // published; so whichever comes first publishes it, and subscribers see IN_PROGRESS first.
+    private void publishStatusChange(LoggingFutureTask<?> futureTask, boolean ended) {
+        if (!statusChanges.hasSubscribers()) return;
+        var task = futureTask.task;
+        synchronized (futureTask) {
+            if (!futureTask.submittedPublished) {
+                futureTask.submittedPublished = true;
+                var at = task.submittedAt().get();
+                var change = new StatusChange(task.id(), task.typeName(), Status.IN_PROGRESS, at);
+                statusChanges.publish(change);
+            }
+            if (ended) {
+                var at = task.endedAt().get();
+                statusChanges.publish(
+                        new StatusChange(task.id(), task.typeName(), task.status(), at));
+            }
         }
     }
 
     private <O> Future<O> future(Task<?, O> task) throws IllegalStateException {
-        if (tasks.putIfAbsent(task.id(), task) != null)
+        for (var dependency : pendingDependenciesFirst(task)) {
+            if (!tasks.containsKey(dependency.sequence())) submit(dependency);
+        }
+        return submit(task);
+    }
+
+    /**
+     * Returns the transitive {@link Task#dependencies()} of the given task which are still {@link
+     * Status#PENDING}, ordered such that every task comes after all of its own dependencies.
+     *
+     * <p>This is an iterative (not recursive) depth-first search, so that deep graphs cannot
+     * overflow the stack.
+     *
+     * @throws IllegalArgumentException if there is a dependency cycle
+     */
+    private static List<Task<?, ?>> pendingDependenciesFirst(Task<?, ?> root) {
+        var ordered = new ArrayList<Task<?, ?>>();
+        var visited = new HashSet<UUID>();
+        var path = new HashSet<UUID>();
+        var stack = new ArrayDeque<Frame>();
+
+        visited.add(root.id());
+        path.add(root.id());
+        stack.push(new Frame(root, root.dependencies().iterator()));
+        while (!stack.isEmpty()) {
+            var frame = stack.peek();
+            if (frame.dependencies().hasNext()) {
+                var dependency = frame.dependencies().next();
+                if (path.contains(dependency.id()))
+                    throw new IllegalArgumentException(cycle(stack, dependency));
+                if (dependency.status() == Status.PENDING && visited.add(dependency.id())) {
+                    path.add(dependency.id());
+                    stack.push(new Frame(dependency, dependency.dependencies().iterator()));
+                }
+            } else {
+                stack.pop();
+                path.remove(frame.task().id());
+                if (frame.task() != root) ordered.add(frame.task());
+            }
+        }
+        return ordered;
+    }
+
+    private record Frame(Task<?, ?> task, Iterator<Task<?, ?>> dependencies) {}
+
+    private static String cycle(ArrayDeque<Frame> stack, Task<?, ?> dependency) {
+        var sb = new StringBuilder("Dependency cycle: ");
+        var inCycle = false;
+        for (var it = stack.descendingIterator(); it.hasNext(); ) {
+            var task = it.next().task();
+            if (task == dependency) inCycle = true;
+            if (inCycle) sb.append(task.id()).append(" -> ");
+        }
+        return sb.append(dependency.id()).toString();
+    }
+
+    private <O> Future<O> submit(Task<?, O> task) throws IllegalStateException {
+        scheduler.admit();
+        var futureTask = register(task);
+        if (readyWithoutDependencies(futureTask)) scheduler.ready(futureTask);
+        cancelIfParentEnded(task);
+        return futureTask;
+    }
+
+    // Makes an admitted task known, but does not start it yet
+    private <O> LoggingFutureTask<O> register(Task<?, O> task) throws IllegalStateException {
+        return register(task, parent());
+    }
+
+    // The task from within whose execute() tasks are being submitted, else the root
+    private Task<?, ?> parent() {
+        var parent = TaskCallable.current();
+        return parent != null ? parent : root;
+    }
+
+    private <O> LoggingFutureTask<O> register(Task<?, O> task, Task<?, ?> parent)
+            throws IllegalStateException {
+        if (tasks.putIfAbsent(task.sequence(), task) != null) {
+            scheduler.unadmit();
             throw new IllegalStateException("Task already submitted: " + task.id());
+        }
 
-        // This serves to detect if it was already submitted to ANOTHER TaskExecutor;
-        // synchronizing on the task object ensures that checking its status and submitting it
-        // is an atomic operation across all threads and executors.
-        synchronized (task) {
-            if (task.status() != Status.PENDING)
-                throw new IllegalStateException(
-                        "Task " + task.id() + " not PENDING: " + task.status());
+        // Setting its future atomically (across all threads and executors) also detects if it
+        // was already submitted to ANOTHER TaskExecutor.
+        Callable<O> callable = new TaskCallable<>(task, cache, workers);
+        var futureTask = new LoggingFutureTask<>(callable, task, this);
+        if (!task.future(futureTask)) {
+            tasks.remove(task.sequence(), task);
+            scheduler.unadmit();
+            throw new IllegalStateException("Task " + task.id() + " not PENDING: " + task.status());
+        }
 
-            Callable<O> callable = new TaskCallable<>(task);
-            var futureTask = new LoggingFutureTask<>(callable, task);
+        task.parent(parent);
+        TaskEvents.commit(new TaskEvents.Submitted(), task);
+        publishStatusChange(futureTask, false);
+        // Unless resume() already saved its last checkpoint
+        if (task instanceof Resumable<?> && checkpoints != null && !checkpoints.exists(task.id()))
+            saveCheckpoint(task, null);
+        return futureTask;
+    }
 
-            executor.execute(futureTask);
+    // Whether it can be ready right away; otherwise, it becomes ready once its dependencies are
+    private boolean readyWithoutDependencies(LoggingFutureTask<?> futureTask) {
+        var dependencies = futureTask.task.dependencies();
+        if (dependencies.isEmpty()) return true;
+        var remaining = new AtomicInteger(dependencies.size());
+        for (var dependency : dependencies) {
+            dependency.whenDone(
+                    () -> {
+                        var status = dependency.status();
+                        if (status != Status.COMPLETED) {
+                            var message = "Dependency " + dependency.id() + " " + status;
+                            var cause = dependency.failure().orElse(null);
+                            futureTask.fail(new IllegalStateException(message, cause));
+                        } else if (remaining.decrementAndGet() == 0) scheduler.ready(futureTask);
+                    });
+        }
+        return false;
+    }
 
-            var timeout = task.timeout();
-            if (!timeout.isZero() && !timeout.isNegative()) {
-                timeoutScheduler.schedule(
-                        () -> futureTask.cancel(true), timeout.toMillis(), MILLISECONDS);
-            }
+    // In case the parent failed or was cancelled before this was its child
+    private void cancelIfParentEnded(Task<?, ?> task) {
+        var parentStatus = task.parent().get().status();
+        if (parentStatus == Status.FAILED || parentStatus == Status.CANCELLED) task.cancel();
+    }
+
+    private void run(LoggingFutureTask<?> futureTask) {
+        var task = futureTask.task;
+        running.putIfAbsent(task.sequence(), task);
+        // In case it was cancelled before it was added, so done() could not remove it
+        if (futureTask.isDone()) running.remove(task.sequence(), task);
 
-            task.future(futureTask);
-            return futureTask;
+        var timeout = task.timeout();
+        if (!timeout.isZero() && !timeout.isNegative()) {
+            futureTask.timeout = timeouts.schedule(() -> timedOut(futureTask), timeout);
+            // In case it was cancelled before the timeout was set, so done() could not cancel it
+            if (futureTask.isDone()) futureTask.timeout.cancel();
         }
+
+        if (task.cpuBound()) {
+            var forked = ForkJoinTask.adapt(futureTask);
+            futureTask.forked = forked;
+            cpuPool.execute(forked);
+        } else executor.execute(futureTask);
+    }
+
+    private void retry(LoggingFutureTask<?> futureTask, Throwable failure) {
+        var task = futureTask.task;
+        var timeout = futureTask.timeout;
+        if (timeout != null) timeout.cancel();
+        var backoff = task.retryPolicy().backoff(task.attempts());
+        TaskEvents.commit(new TaskEvents.Retrying(), task);
+        if (LOG.isLoggable(Level.FINE)) {
+            var attempt = task.attempts();
+            var message = "Retrying task " + task.id() + " in " + backoff + ", after #" + attempt;
+            LOG.log(Level.FINE, message, failure);
+        }
+
+        scheduler.release(futureTask);
+        timeouts.schedule(
+                () -> {
+                    if (!futureTask.isDone()) scheduler.ready(futureTask);
+                },
+                backoff);
+    }
+
+    private void timedOut(LoggingFutureTask<?> futureTask) {
+        if (futureTask.isDone()) return;
+        TaskEvents.commit(new TaskEvents.TimedOut(), futureTask.task);
+        futureTask.cancel(true);
     }
 
     /**
@@ -114,6 +716,8 @@ public class TaskExecutor implements AutoCloseable {
      * @param task the task to execute
      * @return the computed result of the task
      * @throws IllegalStateException if the task was already submitted
+     * @throws IllegalArgumentException if its {@link Task#dependencies()} have a cycle
+     * @throws RejectedExecutionException see {@link Builder#maxQueued(int)}
      * @throws UncheckedTaskAwaitException see {@link Task#await()}
      */
     public <O> O await(Task<?, O> task) throws IllegalStateException, UncheckedTaskAwaitException {
@@ -129,31 +733,309 @@ public class TaskExecutor implements AutoCloseable {
      * use {@link Task#status()}, {@link Task#output()} and {@link Task#failure()} to occasionally
      * inspect the result without blocking.
      *
+     * <p>Any {@link Task#dependencies()} which are still {@link Status#PENDING} are submitted as
+     * well, and the task itself only starts once they all completed.
+     *
      * @param task the task to execute
+     * @throws IllegalStateException if the task was already submitted
+     * @throws IllegalArgumentException if its {@link Task#dependencies()} have a cycle
+     * @throws RejectedExecutionException see {@link Builder#maxQueued(int)}
      */
     public void async(Task<?, ?> task) {
         future(task);
     }
 
-    public Task<?, ?> get(UUID id) throws IllegalArgumentException {
-        var task = tasks.get(id);
+    /**
+     * Submits many tasks for asynchronous execution; like {@link #async(Task)} for each of them,
+     * in order, but the caller spends less time per task. Without concurrency or queue limits (the
+     * default), starting the tasks, which each need a thread, is handed over to other threads in
+     * chunks; they then start in parallel, and (only) not necessarily in order. With limits (see
+     * {@link Builder#maxConcurrency(int)} and {@link Builder#maxQueued(int)}), the tasks start in
+     * order, and the limits are checked for many tasks at once, with one acquisition of the
+     * scheduler's lock.
+     *
+     * <p>If this throws, then the tasks before the one which caused it were submitted.
+     *
+     * @throws IllegalStateException if a task was already submitted
+     * @throws IllegalArgumentException if {@link Task#dependencies()} have a cycle
+     * @throws RejectedExecutionException see {@link Builder#maxQueued(int)}
+     */
+    public void asyncAll(Collection<? extends Task<?, ?>> tasks) {
+        var list = List.copyOf(tasks);
+        var parent = parent();
+        var i = 0;
+        while (i < list.size()) {
+            // Tasks with dependencies are submitted one by one, but all others in batches
+            if (!list.get(i).dependencies().isEmpty()) {
+                future(list.get(i++));
+                continue;
+            }
+            var end = i + 1;
+            while (end < list.size() && list.get(end).dependencies().isEmpty()) end++;
+
+            var admitted = scheduler.admit(end - i);
+            var batch = new ArrayList<LoggingFutureTask<?>>(admitted);
+            try {
+                for (int j = i; j < i + admitted; j++) {
+                    try {
+                        batch.add(register(list.get(j), parent));
+                    } catch (IllegalStateException e) {
+                        scheduler.unadmit(i + admitted - j - 1); // register() unadmitted j
+                        throw e;
+                    }
+                }
+            } finally {
+                if (scheduler.unlimited()) startInChunks(batch);
+                else scheduler.ready(batch);
+                for (var futureTask : batch) cancelIfParentEnded(futureTask.task);
+            }
+            i += admitted;
+        }
+    }
+
+    // Each task gets its own thread when it starts, which costs (much) more than registering it;
+    // so asyncAll() leaves that to one (virtual) thread per chunk, which start them in parallel
+    private void startInChunks(List<LoggingFutureTask<?>> batch) {
+        for (int from = 0; from < batch.size(); from += START_CHUNK_SIZE) {
+            var chunk = batch.subList(from, Math.min(from + START_CHUNK_SIZE, batch.size()));
+            executor.execute(
+                    () -> {
+                        try {
+                            scheduler.ready(chunk);
+                        } catch (RejectedExecutionException e) {
+                            // close() cancelled them all meanwhile, so they needn't start anymore
+                            if (!closed) throw e;
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Submits many tasks, and waits for all of them to be done; see {@link #asyncAll(Collection)}.
+     *
+     * <p>Unlike {@link Tasks#allOf(Collection)}, this does not stop at the first failure, but
+     * collects them all.
+     *
+     * @throws UncheckedTaskAwaitException if interrupted while waiting
+     */
+    public <O> BulkResult<O> awaitAll(Collection<? extends Task<?, O>> tasks)
+            throws UncheckedTaskAwaitException {
+        var list = List.copyOf(tasks);
+        asyncAll(list);
+        var latch = new CountDownLatch(list.size());
+        for (var task : list) task.whenDone(latch::countDown);
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedTaskAwaitException("Interrupted while awaiting tasks", e);
+        }
+
+        var outputs = new ArrayList<O>(list.size());
+        var failures = new LinkedHashMap<Task<?, O>, Throwable>();
+        for (Task<?, O> task : list) {
+            switch (task.status()) {
+                case COMPLETED -> outputs.add(task.output().get());
+                case FAILED -> failures.put(task, task.failure().get());
+                default -> {
+                    var cancelled = new CancellationException("Task cancelled: " + task.id());
+                    failures.put(task, cancelled);
+                }
+            }
+        }
+        return new BulkResult<>(List.copyOf(outputs), Collections.unmodifiableMap(failures));
+    }
+
+    /**
+     * Submits many tasks, waits for the first one to complete, and then cancels all others; see
+     * {@link #asyncAll(Collection)} and {@link Tasks#anyOf(Collection)}.
+     *
+     * @return output of the task which completed first
+     * @throws UncheckedTaskAwaitException if none of the tasks completed (with the last failure as
+     *     cause), or if interrupted while waiting
+     */
+    public <O> O awaitAny(Collection<? extends Task<?, O>> tasks)
+            throws UncheckedTaskAwaitException {
+        var list = List.copyOf(tasks);
+        var any = Tasks.anyOf(list);
+        asyncAll(list);
+        try {
+            return any.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedTaskAwaitException("Interrupted while awaiting tasks", e);
+        } catch (ExecutionException e) {
+            throw new UncheckedTaskAwaitException("No task completed", e.getCause());
+        } finally {
+            for (var task : list) task.cancel();
+        }
+    }
+
+    /**
+     * Publishes the {@link Task#status()} changes of all tasks submitted to this executor, i.e.
+     * when a task was submitted (and is then {@link Status#IN_PROGRESS}), and when it ended; this
+     * is much cheaper than polling {@link #list()} and {@link #get(UUID)}. Subscribers which want
+     * to know the status of tasks which were submitted before they subscribed can do so once,
+     * after subscribing.
+     *
+     * <p>Changes are delivered on another thread, so they never slow down task execution. If a
+     * subscriber does not keep up, then a later change of a task replaces an earlier one of the
+     * same task which was not delivered yet, see {@link Builder#statusChangesBufferSize(int)}.
+     *
+     * <p>Subscribers are completed when this executor is {@link #close()}d.
+     */
+    public Flow.Publisher<StatusChange> statusChanges() {
+        return statusChanges;
+    }
+
+    /**
+     * Obtains a task which was submitted to this executor, either from memory or else from the
+     * {@link Builder#store(TaskStore)} (as a {@link StoredTask}).
+     *
+     * @throws IllegalArgumentException if there is no such task (anymore)
+     * @throws UncheckedIOException if reading from the store failed
+     */
+    public Task<?, ?> get(UUID id) throws IllegalArgumentException, UncheckedIOException {
+        var sequence = TaskIds.sequence(id);
+        var task = sequence >= 0 ? tasks.get(sequence) : null;
+        if (task == null && store != null) {
+            try {
+                task = store.get(id).orElse(null);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read task " + id, e);
+            }
+        }
         if (task == null) throw new IllegalArgumentException("No such task: " + id);
         return task;
     }
 
+    /**
+     * Synthetic root task, of which all tasks which were not submitted from within the {@link
+     * Task#execute()} of another task are {@link Task#children()} while they run; unlike other
+     * tasks, it does not keep its {@link Task#endedChildren()}. It is {@link Status#IN_PROGRESS}
+     * until this executor is closed.
+     */
+    public Task<?, ?> root() {
+        return root;
+    }
+
+    /** IDs of tasks in memory, and in the {@link Builder#store(TaskStore)}. */
     public Set<UUID> list() {
-        return tasks.keySet();
+        var ids = store != null ? new HashSet<>(store.ids()) : new HashSet<UUID>();
+        tasks.forEach(task -> ids.add(task.id()));
+        return ids;
+    }
+
+    /**
+     * Submits the {@link Resumable} tasks which had not ended yet when the previous executor with
+     * the same {@link Builder#checkpoints(Path)} directory stopped, e.g. because the JVM crashed or
+     * was closed; each continues from its last {@link Task#checkpoint(Serializable)}. This is
+     * typically called once, right after building the executor.
+     *
+     * <p>Tasks are re-created from their class and input, see {@link Resumable}, and thus have new
+     * IDs. Checkpoints which cannot be read (e.g. because the class changed incompatibly) are
+     * logged and left in the directory.
+     *
+     * @return the resumed tasks
+     * @throws IllegalStateException if this executor has no checkpoints directory
+     * @throws IOException if the checkpoints directory cannot be read
+     */
+    public List<Task<?, ?>> resume() throws IllegalStateException, IOException {
+        if (checkpoints == null) throw new IllegalStateException("No checkpoints directory");
+        var resumed = new ArrayList<Task<?, ?>>();
+        for (var checkpoint : checkpoints.load()) {
+            // Not tasks of this executor itself, which are still running
+            if (tasks.containsKey(TaskIds.sequence(checkpoint.id()))) continue;
+            Task<?, ?> task;
+            try {
+                task = Task.newInstance(checkpoint.type(), checkpoint.input());
+                if (!(task instanceof Resumable<?> resumable))
+                    throw new ClassCastException(checkpoint.type() + " is not Resumable");
+                if (checkpoint.state() != null) resume(resumable, checkpoint.state());
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                LOG.log(Level.WARNING, "Cannot resume task " + checkpoint.id(), e);
+                continue;
+            }
+            checkpoints.save(task, checkpoint.state());
+            checkpoints.delete(checkpoint.id());
+            async(task);
+            resumed.add(task);
+        }
+        return resumed;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <S extends Serializable> void resume(Resumable<S> task, Serializable state) {
+        task.resume((S) state);
+    }
+
+    /**
+     * Periodically samples the {@link Task#progress()} of all tasks which are {@link
+     * Status#IN_PROGRESS}, and passes them to the listener, together with how much progress each
+     * made per second since the previous sample.
+     *
+     * <p>The listener is called on an internal thread, and must return quickly.
+     *
+     * @param interval between samples, must be positive
+     * @return future which can be {@link ScheduledFuture#cancel(boolean)} to stop watching
+     */
+    public ScheduledFuture<?> watchProgress(
+            Duration interval, Consumer<List<Progress.Sample>> listener) {
+        if (interval.isNegative() || interval.isZero())
+            throw new IllegalArgumentException("interval must be positive: " + interval);
+        var previous = new HashMap<UUID, Long>();
+        var previousNanos = new long[] {System.nanoTime()};
+        var n = interval.toNanos();
+        return cleanupScheduler.scheduleAtFixedRate(
+                () -> {
+                    var nanos = System.nanoTime();
+                    var elapsed = Math.max(1, nanos - previousNanos[0]);
+                    previousNanos[0] = nanos;
+
+                    var samples = new ArrayList<Progress.Sample>();
+                    var current = new HashMap<UUID, Long>();
+                    for (var task : running.values()) {
+                        if (task.status() != Status.IN_PROGRESS) continue;
+                        var progress = task.progress();
+                        var done = progress.done();
+                        var delta = done - previous.getOrDefault(task.id(), 0L);
+                        var perSecond = delta * 1_000_000_000L / elapsed;
+                        var total = progress.total();
+                        var type = task.typeName();
+                        samples.add(new Progress.Sample(task.id(), type, done, total, perSecond));
+                        current.put(task.id(), done);
+                    }
+                    previous.clear();
+                    previous.putAll(current);
+
+                    try {
+                        listener.accept(samples);
+                    } catch (RuntimeException e) {
+                        LOG.log(Level.SEVERE, "Progress listener failed", e);
+                    }
+                },
+                n,
+                n,
+                NANOSECONDS);
     }
 
     @Override
     public void close() {
-        // Signal to all running tasks, so they can terminate gracefully & fast
+        closed = true;
+        // Signal to all running tasks, so they can terminate gracefully & fast; cancelling the
+        // root cascades to all tasks, except children of tasks which completed before them.
+        root.cancel();
         for (Task<?, ?> task : tasks.values()) {
-            task.cancel();
+            if (!task.status().isTerminal()) task.cancel();
         }
 
         cleanupScheduler.close();
-        timeoutScheduler.close();
+        timeouts.close();
         executor.close();
+        cpuPool.close();
+        statusChanges.close();
+
+        // Now that they all terminated, keep them all
+        if (store != null) tasks.values().forEach(this::stored);
     }
 }
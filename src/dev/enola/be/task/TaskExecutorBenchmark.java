@@ -0,0 +1,338 @@
+package dev.enola.be.task;
+
+import dev.enola.common.bench.Harness;
+import dev.enola.common.bench.Harness.Result;
+import dev.enola.common.bench.Histogram;
+import dev.enola.common.concurrent.Threads;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Benchmarks of the {@link TaskExecutor}, see {@link Harness} for arguments (e.g. <code>--quick
+ * </code>).
+ */
+public class TaskExecutorBenchmark {
+
+    private static class NoopTask extends TaskWithoutInputOutput {
+        @Override
+        protected void executeIt() {}
+    }
+
+    private static class LatencyTask extends TaskWithoutInputOutput {
+        private final Histogram histogram;
+        private final long submittedNanos = System.nanoTime();
+
+        LatencyTask(Histogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override
+        protected void executeIt() {
+            histogram.record(System.nanoTime() - submittedNanos);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        var harness = new Harness(args);
+        create(harness);
+        await(harness);
+        asyncBatch(harness);
+        submitToStartLatency(harness);
+        status(harness);
+        evict(harness);
+        priorityLatency(harness);
+        cpuBound(harness);
+    }
+
+    // Completed tasks must be evicted, or benchmarks submitting millions of tasks run out of memory
+    private static TaskExecutor newExecutor() {
+        return newExecutor(Integer.MAX_VALUE);
+    }
+
+    private static TaskExecutor newExecutor(int maxConcurrency) {
+        return new TaskExecutor.Builder()
+                .completedTaskEvictionInterval(Duration.ofMillis(100))
+                .maxConcurrency(maxConcurrency)
+                .build();
+    }
+
+    /** Creating tasks, i.e. mostly generating their IDs; compared to random UUIDs. */
+    private static void create(Harness harness) throws Exception {
+        harness.run(
+                "Task.new",
+                () -> {
+                    Harness.consume(new NoopTask().id().hashCode());
+                    return 1;
+                });
+        harness.run(
+                "UUID.randomUUID",
+                () -> {
+                    Harness.consume(UUID.randomUUID().hashCode());
+                    return 1;
+                });
+    }
+
+    /** Round trip of a single task, i.e. submitting it and waiting for it to complete. */
+    private static void await(Harness harness) throws Exception {
+        try (var executor = newExecutor()) {
+            harness.run(
+                    "TaskExecutor.await",
+                    () -> {
+                        executor.await(new NoopTask());
+                        return 1;
+                    });
+        }
+    }
+
+    /**
+     * Submitting many tasks, and only then waiting for them all to complete; one by one, and with
+     * the bulk API. Also with a concurrency limit, under which asyncAll() batches the scheduler's
+     * bookkeeping, instead of handing over starting them. How long the caller spent submitting,
+     * per task, is printed as well.
+     */
+    private static void asyncBatch(Harness harness) throws Exception {
+        for (var batch : harness.quick() ? List.of(100) : List.of(100, 10_000)) {
+            for (var maxConcurrency : List.of(Integer.MAX_VALUE, 64)) {
+                for (var bulk : new boolean[] {false, true}) {
+                    var name = "TaskExecutor." + (bulk ? "asyncAll" : "async") + "(x" + batch;
+                    if (maxConcurrency != Integer.MAX_VALUE) name += ", max " + maxConcurrency;
+                    name += ")+await";
+                    if (!harness.includes(name)) continue;
+                    for (var threads : harness.threads()) {
+                        var submit = new Histogram();
+                        try (var executor = newExecutor(maxConcurrency)) {
+                            harness.run(
+                                    name,
+                                    threads,
+                                    () -> {
+                                        var tasks = new ArrayList<Task<?, ?>>(batch);
+                                        for (int i = 0; i < batch; i++) tasks.add(new NoopTask());
+                                        var start = System.nanoTime();
+                                        if (bulk) executor.asyncAll(tasks);
+                                        else for (var task : tasks) executor.async(task);
+                                        submit.record((System.nanoTime() - start) / batch);
+                                        for (var task : tasks) task.await();
+                                        return batch;
+                                    });
+                        }
+                        System.out.println("  submit, per task: " + submit);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Time from submitting a task until its execute() is invoked. */
+    private static void submitToStartLatency(Harness harness) throws Exception {
+        for (var threads : harness.threads()) {
+            var name = "TaskExecutor.submitToStart";
+            var histogram = new Histogram();
+            try (var executor = newExecutor()) {
+                var result =
+                        harness.run(
+                                name,
+                                threads,
+                                () -> {
+                                    executor.await(new LatencyTask(histogram));
+                                    return 1;
+                                });
+                if (result != null) System.out.println("  latency: " + histogram);
+            }
+        }
+    }
+
+    /** Cost of polling {@link Task#status()}, e.g. by a UI, of running and completed tasks. */
+    private static void status(Harness harness) throws Exception {
+        var latch = new CountDownLatch(1);
+        try (var executor = newExecutor()) {
+            var running =
+                    new TaskWithoutInputOutput() {
+                        @Override
+                        protected void executeIt() throws Exception {
+                            latch.await();
+                        }
+                    };
+            executor.async(running);
+            var completed = new NoopTask();
+            executor.await(completed);
+            List<Task<?, ?>> tasks = List.of(running, completed);
+            harness.run(
+                    "Task.status",
+                    () -> {
+                        var ordinals = 0;
+                        for (var task : tasks) ordinals += task.status().ordinal();
+                        Harness.consume(ordinals);
+                        return tasks.size();
+                    });
+            latch.countDown();
+        }
+    }
+
+    /** Evicting completed tasks, depending on how many tasks there are. */
+    private static void evict(Harness harness) throws Exception {
+        var sizes = harness.quick() ? List.of(1_000) : List.of(1_000, 10_000, 100_000, 1_000_000);
+        for (var size : sizes) {
+            var name = "TaskExecutor.evictCompletedTasks(" + size + ")";
+            if (!harness.includes(name)) continue;
+
+            // Scheduled eviction never runs; retention is short, so that all tasks are evicted
+            var builder =
+                    new TaskExecutor.Builder()
+                            .completedTaskEvictionInterval(Duration.ofHours(1))
+                            .completedTaskRetention(Duration.ofNanos(1));
+            long nanos = 0;
+            var iterations = harness.quick() ? 1 : 5;
+            for (int i = 0; i < iterations; i++) {
+                try (var executor = builder.build()) {
+                    var tasks = new ArrayList<Task<?, ?>>(size);
+                    for (int j = 0; j < size; j++) tasks.add(new NoopTask());
+                    for (var task : tasks) executor.async(task);
+                    for (var task : tasks) task.await();
+                    Thread.sleep(1);
+
+                    var start = System.nanoTime();
+                    executor.evictCompletedTasks();
+                    nanos += System.nanoTime() - start;
+                    if (!executor.list().isEmpty()) throw new IllegalStateException("Not evicted");
+                }
+            }
+            harness.record(new Result(name, 1, (long) size * iterations, nanos));
+        }
+    }
+
+    // Same shareGroup() as InteractiveTask, so without priority, they are FIFO
+    private static class BulkTask extends TaskWithoutInputOutput {
+        @Override
+        public String shareGroup() {
+            return "benchmark";
+        }
+
+        @Override
+        protected void executeIt() throws Exception {
+            Threads.sleep(Duration.ofMillis(1));
+        }
+    }
+
+    private static class InteractiveTask extends TaskWithoutInputOutput {
+        private final int priority;
+
+        InteractiveTask(int priority) {
+            this.priority = priority;
+        }
+
+        @Override
+        public int priority() {
+            return priority;
+        }
+
+        @Override
+        public String shareGroup() {
+            return "benchmark";
+        }
+
+        @Override
+        protected void executeIt() {}
+    }
+
+    /**
+     * Latency (from submission until completion) of interactive tasks, while the executor is
+     * saturated with a backlog of bulk tasks; both without and with a higher priority for them.
+     */
+    private static void priorityLatency(Harness harness) throws Exception {
+        var concurrency = 4;
+        var backlog = 100;
+        var samples = harness.quick() ? 20 : 2000;
+        for (var priority : new int[] {0, 1}) {
+            var name = "TaskExecutor.priorityLatency(priority=" + priority + ")";
+            if (!harness.includes(name)) continue;
+
+            var histogram = new Histogram();
+            var stop = new AtomicBoolean();
+            try (var executor = newExecutor(concurrency)) {
+                // Keeps the backlog of bulk tasks full
+                var permits = new Semaphore(backlog);
+                Runnable feed =
+                        () -> {
+                            while (!stop.get()) {
+                                permits.acquireUninterruptibly();
+                                var bulk = new BulkTask();
+                                bulk.whenDone(permits::release);
+                                executor.async(bulk);
+                            }
+                        };
+                var feeder = Thread.ofPlatform().start(feed);
+                while (permits.availablePermits() > 0) Thread.sleep(1);
+
+                var start = System.nanoTime();
+                for (int i = 0; i < samples; i++) {
+                    var submitted = System.nanoTime();
+                    executor.await(new InteractiveTask(priority));
+                    histogram.record(System.nanoTime() - submitted);
+                }
+                var nanos = System.nanoTime() - start;
+                stop.set(true);
+                permits.release(backlog); // in case the feeder is waiting
+                feeder.join();
+
+                harness.record(new Result(name, 1, samples, nanos));
+                System.out.println("  latency: " + histogram);
+            }
+        }
+    }
+
+    /** Forks subtasks for each half of its range, down to single leaves, which compute. */
+    private static class ComputeTask extends Task<ComputeTask.Range, Long> {
+        record Range(int from, int to, boolean cpuBound) {}
+
+        ComputeTask(Range range) {
+            super(range);
+        }
+
+        @Override
+        public boolean cpuBound() {
+            return input.cpuBound;
+        }
+
+        @Override
+        protected Long execute() {
+            if (input.to - input.from == 1) {
+                // xorshift, which the JIT cannot fold away
+                long x = input.from + 1;
+                for (int i = 0; i < 20_000; i++) {
+                    x ^= x << 13;
+                    x ^= x >>> 7;
+                    x ^= x << 17;
+                }
+                return x;
+            }
+            var middle = (input.from + input.to) >>> 1;
+            var left = fork(new ComputeTask(new Range(input.from, middle, input.cpuBound)));
+            var right = fork(new ComputeTask(new Range(middle, input.to, input.cpuBound)));
+            return left.await() ^ right.await();
+        }
+    }
+
+    /** Fork/join trees of CPU-bound subtasks, on virtual threads and on the work-stealing pool. */
+    private static void cpuBound(Harness harness) throws Exception {
+        var leaves = 256;
+        for (var cpuBound : new boolean[] {false, true}) {
+            var name = "TaskExecutor.cpuBound(" + cpuBound + ",x" + leaves + ")";
+            if (!harness.includes(name)) continue;
+            try (var executor = newExecutor()) {
+                harness.run(
+                        name,
+                        () -> {
+                            var range = new ComputeTask.Range(0, leaves, cpuBound);
+                            Harness.consume(executor.await(new ComputeTask(range)).intValue());
+                            return leaves;
+                        });
+            }
+        }
+    }
+}
@@ -2,13 +2,31 @@ package dev.enola.be.task;
 
 import static ch.vorburger.test.Assert.assertTrue;
 
+import dev.enola.be.task.test.DependentTask;
 import dev.enola.be.task.test.FailingTask;
 import dev.enola.be.task.test.ImmediateTask;
 import dev.enola.be.task.test.SlowTask;
+import dev.enola.common.concurrent.Threads;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class TaskExecutorTest {
 
@@ -25,6 +43,37 @@ public class TaskExecutorTest {
         testSubmitTaskToAnotherExecutorFailure();
         testExecutorClose();
         testThreadNaming();
+        testDependencies();
+        testDependencyCycle();
+        testFailingDependency();
+        testMaxConcurrency();
+        testMaxConcurrencyPerType();
+        testQueueFullReject();
+        testCompletedTaskRetention();
+        testEvictionPastUnstorableTask();
+        testProgress();
+        testTaskHierarchy();
+        testEndedChildrenAreBounded();
+        testCancellationCascades();
+        testQueueWaitAndRunTime();
+        testPriority();
+        testFairShare();
+        testSchedulerForgetsIdleGroups();
+        testRetry();
+        testRetryExhausted();
+        testRetryReleasesConcurrency();
+        testRetryWithoutBackoff();
+        testAsyncAll();
+        testAsyncAllBlocksWhenQueueFull();
+        testAsyncAllAlreadySubmitted();
+        testAwaitAll();
+        testAwaitAny();
+        testAwaitAnyAllFail();
+        testStatusChanges();
+        testCpuBound();
+        testCpuBoundRetryAwaitedInline();
+        testForkOnlyFromExecute();
+        testCheckpointAndResume();
     }
 
     private static void testCompletedTask() throws Exception {
@@ -227,4 +276,832 @@ public class TaskExecutorTest {
             assertTrue(threadName.equals(task.id().toString()));
         }
     }
+
+    private static void testDependencies() {
+        try (var executor = new TaskExecutor()) {
+            var a = new SlowTask("a", 10);
+            var b = new DependentTask("b", a);
+            var c = new DependentTask("c", a);
+            var d = new DependentTask("d", b, c);
+
+            var result = executor.await(d);
+            assertTrue("d[b[Completed: a], c[Completed: a]]".equals(result), result);
+            assertTrue(a.status() == Status.COMPLETED, "a should be COMPLETED: " + a.status());
+            assertTrue(executor.list().size() == 4, "Should have 4 tasks: " + executor.list());
+
+            // Already completed dependencies are not re-submitted
+            var e = new DependentTask("e", a);
+            assertTrue("e[Completed: a]".equals(executor.await(e)));
+        }
+    }
+
+    private static void testDependencyCycle() {
+        try (var executor = new TaskExecutor()) {
+            var a = new DependentTask("a");
+            var b = new DependentTask("b", a);
+            a.dependOn(b);
+            try {
+                executor.async(a);
+                assertTrue(false, "Should have thrown IllegalArgumentException on cycle");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains("cycle"), e.getMessage());
+            }
+            assertTrue(b.status() == Status.PENDING, "b should still be PENDING: " + b.status());
+            assertTrue(executor.list().isEmpty(), "Nothing should have been submitted");
+        }
+    }
+
+    private static void testFailingDependency() {
+        try (var executor = new TaskExecutor()) {
+            var failing = new FailingTask();
+            var dependent = new DependentTask("dependent", failing);
+            try {
+                executor.await(dependent);
+                assertTrue(false, "Should have thrown an exception");
+            } catch (IllegalStateException e) {
+                assertTrue(e.getMessage().contains(failing.id().toString()), e.getMessage());
+            }
+            assertTrue(dependent.status() == Status.FAILED, "Should be FAILED: " + dependent);
+            assertTrue(failing.status() == Status.FAILED, "Should be FAILED: " + failing);
+        }
+    }
+
+    private static class ConcurrencyTrackingTask extends Task<AtomicInteger[], Empty> {
+        ConcurrencyTrackingTask(AtomicInteger running, AtomicInteger maxRunning) {
+            super(new AtomicInteger[] {running, maxRunning});
+        }
+
+        @Override
+        protected Empty execute() throws Exception {
+            var now = input[0].incrementAndGet();
+            input[1].accumulateAndGet(now, Math::max);
+            Threads.sleep(Duration.ofMillis(20));
+            input[0].decrementAndGet();
+            return Empty.INSTANCE;
+        }
+    }
+
+    private static void testMaxConcurrency() {
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+        try (var executor = new TaskExecutor.Builder().maxConcurrency(2).build()) {
+            var tasks = new ArrayList<Task<?, ?>>();
+            for (int i = 0; i < 10; i++) {
+                var task = new ConcurrencyTrackingTask(running, maxRunning);
+                executor.async(task);
+                tasks.add(task);
+            }
+            for (var task : tasks) task.await();
+        }
+        assertTrue(maxRunning.get() == 2, "Max. running should be 2, but was " + maxRunning);
+    }
+
+    private static void testMaxConcurrencyPerType() {
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+        try (var executor =
+                new TaskExecutor.Builder()
+                        .maxConcurrency(ConcurrencyTrackingTask.class, 1)
+                        .build()) {
+            var slow = new SlowTask("other type", 100);
+            executor.async(slow);
+            var tasks = new ArrayList<Task<?, ?>>();
+            for (int i = 0; i < 5; i++) {
+                var task = new ConcurrencyTrackingTask(running, maxRunning);
+                executor.async(task);
+                tasks.add(task);
+            }
+            assertTrue(slow.status() == Status.IN_PROGRESS, "Other type should not wait");
+            for (var task : tasks) task.await();
+        }
+        assertTrue(maxRunning.get() == 1, "Max. running should be 1, but was " + maxRunning);
+    }
+
+    private static void testQueueFullReject() {
+        try (var executor =
+                new TaskExecutor.Builder()
+                        .maxConcurrency(1)
+                        .maxQueued(1)
+                        .whenQueueFull(TaskExecutor.QueueFull.REJECT)
+                        .build()) {
+            executor.async(new SlowTask("running", 1000));
+            var queued = new ImmediateTask("queued");
+            executor.async(queued);
+            var rejected = new ImmediateTask("rejected");
+            try {
+                executor.async(rejected);
+                assertTrue(false, "Should have thrown RejectedExecutionException");
+            } catch (RejectedExecutionException e) {
+                // Expected
+            }
+            assertTrue(rejected.status() == Status.PENDING, "Rejected task should be PENDING");
+            assertTrue(!executor.list().contains(rejected.id()), "Rejected should not be listed");
+
+            // Cancelling the queued task makes room for another one
+            queued.cancel();
+            executor.async(new ImmediateTask("another"));
+        }
+    }
+
+    private static void testCompletedTaskRetention() throws Exception {
+        try (var executor =
+                new TaskExecutor.Builder()
+                        .completedTaskEvictionInterval(Duration.ofMillis(10))
+                        .completedTaskRetention(Duration.ofMillis(300))
+                        .build()) {
+            var task = new ImmediateTask("test");
+            var running = new SlowTask("running", 1000);
+            executor.async(running);
+            executor.await(task);
+
+            Thread.sleep(100);
+            assertTrue(executor.list().contains(task.id()), "Should be retained for 300ms");
+
+            Thread.sleep(400);
+            assertTrue(!executor.list().contains(task.id()), "Should have been evicted");
+            assertTrue(executor.list().contains(running.id()), "Running task must not be evicted");
+        }
+    }
+
+    private static void testEvictionPastUnstorableTask() throws Exception {
+        var poison = new ImmediateTask("poison");
+        var attempts = new AtomicInteger();
+        var stored = ConcurrentHashMap.<UUID>newKeySet();
+        var store =
+                new TaskStore() {
+                    @Override
+                    public void put(Task<?, ?> task) throws IOException {
+                        if (task == poison) {
+                            attempts.incrementAndGet();
+                            throw new IOException("Poison");
+                        }
+                        stored.add(task.id());
+                    }
+
+                    @Override
+                    public Optional<Task<?, ?>> get(UUID id) {
+                        return Optional.empty();
+                    }
+
+                    @Override
+                    public Set<UUID> ids() {
+                        return Set.copyOf(stored);
+                    }
+                };
+        try (var executor =
+                new TaskExecutor.Builder()
+                        .completedTaskEvictionInterval(Duration.ofMillis(10))
+                        .store(store)
+                        .build()) {
+            executor.await(poison);
+            var after = new ImmediateTask("after");
+            executor.await(after);
+
+            Thread.sleep(200);
+            assertTrue(stored.contains(after.id()), "Should be evicted past the poison task");
+            assertTrue(!executor.list().contains(poison.id()), "Should be evicted anyway");
+            assertTrue(attempts.get() == 3, "Should try to store 3 times: " + attempts);
+        }
+    }
+
+    private static void testProgress() throws Exception {
+        try (var executor = new TaskExecutor()) {
+            var latch = new CountDownLatch(1);
+            var task =
+                    new Task<Empty, Empty>(Empty.INSTANCE) {
+                        @Override
+                        protected Empty execute() throws Exception {
+                            progress().total(100);
+                            progress().add(42);
+                            latch.await();
+                            return Empty.INSTANCE;
+                        }
+                    };
+            var samples = new LinkedBlockingQueue<List<Progress.Sample>>();
+            // Less than a millisecond, which must not be rounded down to 0
+            var watch = executor.watchProgress(Duration.ofNanos(500_000), samples::add);
+            executor.async(task);
+
+            Progress.Sample sample = null;
+            while (sample == null || sample.done() != 42) {
+                var polled = samples.poll(5, TimeUnit.SECONDS);
+                assertTrue(polled != null, "No progress samples");
+                sample = polled.isEmpty() ? null : polled.get(0);
+            }
+            assertTrue(sample.id().equals(task.id()), "Sample should be for task: " + sample);
+            assertTrue(sample.total() == 100, "Sample total should be 100: " + sample);
+            assertTrue(task.progress().percent() == 42, "Should be 42%: " + task);
+            assertTrue(task.toString().contains("progress: 42%"), task);
+
+            watch.cancel(false);
+            latch.countDown();
+            task.await();
+
+            try {
+                executor.watchProgress(Duration.ZERO, samples::add);
+                assertTrue(false, "Should have thrown IllegalArgumentException");
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+
+    private static void testTaskHierarchy() throws Exception {
+        try (var executor = new TaskExecutor()) {
+            var ended = new ImmediateTask("ended");
+            var child = new SlowTask("child", 100);
+            var seen = new ArrayList<Task<?, ?>>();
+            var shown = new StringBuilder();
+            var parent =
+                    new Task<Empty, Empty>(Empty.INSTANCE) {
+                        @Override
+                        protected Empty execute() throws Exception {
+                            executor.await(ended);
+                            executor.async(child);
+                            seen.addAll(children());
+                            shown.append(this);
+                            return Empty.INSTANCE;
+                        }
+                    };
+            var running = new SlowTask("running", 1000);
+            executor.async(running);
+            executor.await(parent);
+
+            assertTrue(child.parent().get() == parent, "Parent of child should be parent");
+            assertTrue(ended.parent().get() == parent, "Parent of ended should be parent");
+            assertTrue(seen.equals(List.of(child)), "Only running children: " + seen);
+            assertTrue(shown.toString().contains("  - " + child.id()), shown);
+            assertTrue(parent.parent().get() == executor.root(), "Parent of parent is root");
+
+            child.await();
+            assertTrue(parent.children().isEmpty(), "Children: " + parent.children());
+            var endedIds = parent.endedChildren().stream().map(Task.EndedChild::id).toList();
+            assertTrue(endedIds.equals(List.of(ended.id(), child.id())), "Ended: " + endedIds);
+            assertTrue(parent.toString().contains("  - " + child.id()), parent);
+            var runTime = parent.childrenRunTime();
+            assertTrue(runTime.compareTo(child.runTime()) >= 0, "childrenRunTime: " + runTime);
+
+            var rootChildren = executor.root().children();
+            assertTrue(rootChildren.equals(Set.of(running)), "Root children: " + rootChildren);
+            assertTrue(executor.root().status() == Status.IN_PROGRESS, "Root should run");
+        }
+    }
+
+    private static void testEndedChildrenAreBounded() throws Exception {
+        try (var executor = new TaskExecutor()) {
+            var parent =
+                    new Task<Empty, Empty>(Empty.INSTANCE) {
+                        @Override
+                        protected Empty execute() throws Exception {
+                            for (int i = 0; i < 150; i++) executor.await(new ImmediateTask("" + i));
+                            return Empty.INSTANCE;
+                        }
+                    };
+            executor.await(parent);
+            var ended = parent.endedChildren();
+            assertTrue(ended.size() == 100, "Should keep the last 100: " + ended.size());
+            assertTrue(ended.getLast().status() == Status.COMPLETED, "Last: " + ended.getLast());
+            assertTrue(parent.endedChildrenCount() == 150, "Count: " + parent.endedChildrenCount());
+            assertTrue(parent.toString().contains("… 50 more ended"), parent);
+        }
+    }
+
+    private static void testCancellationCascades() throws Exception {
+        try (var executor = new TaskExecutor()) {
+            var child = new SlowTask("child", 10000);
+            var grandchild = new SlowTask("grandchild", 10000);
+            var childParent =
+                    new Task<Empty, Empty>(Empty.INSTANCE) {
+                        @Override
+                        protected Empty execute() throws Exception {
+                            executor.async(grandchild);
+                            Threads.sleep(Duration.ofSeconds(10));
+                            return Empty.INSTANCE;
+                        }
+                    };
+            var parent =
+                    new Task<Empty, Empty>(Empty.INSTANCE) {
+                        @Override
+                        protected Empty execute() throws Exception {
+                            executor.async(child);
+                            executor.async(childParent);
+                            while (grandchild.status() == Status.PENDING) Thread.sleep(1);
+                            throw new IllegalStateException("Parent fails");
+                        }
+                    };
+            try {
+                executor.await(parent);
+                assertTrue(false, "Should have thrown an exception");
+            } catch (IllegalStateException e) {
+                // Expected
+            }
+            assertTrue(child.status() == Status.CANCELLED, "Should be CANCELLED: " + child);
+            assertTrue(childParent.status() == Status.CANCELLED, "CANCELLED: " + childParent);
+            assertTrue(grandchild.status() == Status.CANCELLED, "CANCELLED: " + grandchild);
+        }
+
+        var executor = new TaskExecutor();
+        try (executor) {
+            var running = new SlowTask("running", 10000);
+            executor.async(running);
+            executor.close();
+            assertTrue(running.status() == Status.CANCELLED, "Close should cancel: " + running);
+        }
+    }
+
+    private static void testQueueWaitAndRunTime() throws Exception {
+        try (var executor = new TaskExecutor.Builder().maxConcurrency(1).build()) {
+            var first = new SlowTask("first", 100);
+            var second = new SlowTask("second", 50);
+            assertTrue(second.queueWait().isZero(), "Not submitted yet");
+            executor.async(first);
+            executor.async(second);
+            second.await();
+
+            var queueWait = second.queueWait().toMillis();
+            var runTime = second.runTime().toMillis();
+            assertTrue(queueWait >= 80, "Should have waited for first: " + second);
+            assertTrue(runTime >= 50 && runTime < 100, "Should not include queueWait: " + second);
+            assertTrue(second.duration().equals(second.runTime()), "duration() is runTime()");
+            var submittedAt = second.submittedAt().get();
+            var startedAt = second.startedAt().get();
+            assertTrue(startedAt.isAfter(submittedAt), "Should start after submission: " + second);
+            assertTrue(second.toString().contains("queueWait: "), second);
+        }
+    }
+
+    private static class OrderTask extends Task<String, Empty> {
+        private final List<String> order;
+        private final int priority;
+        private final String shareGroup;
+
+        OrderTask(String input, List<String> order, int priority, String shareGroup) {
+            super(input);
+            this.order = order;
+            this.priority = priority;
+            this.shareGroup = shareGroup;
+        }
+
+        @Override
+        public int priority() {
+            return priority;
+        }
+
+        @Override
+        public String shareGroup() {
+            return shareGroup;
+        }
+
+        @Override
+        protected Empty execute() {
+            order.add(input);
+            return Empty.INSTANCE;
+        }
+    }
+
+    private static class BlockingTask extends TaskWithoutInputOutput {
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        @Override
+        protected void executeIt() throws Exception {
+            latch.await();
+        }
+    }
+
+    private static void testPriority() throws Exception {
+        var order = Collections.synchronizedList(new ArrayList<String>());
+        try (var executor = new TaskExecutor.Builder().maxConcurrency(1).build()) {
+            var blocking = new BlockingTask();
+            executor.async(blocking);
+            var tasks = new ArrayList<Task<?, ?>>();
+            tasks.add(new OrderTask("low", order, -1, "g"));
+            tasks.add(new OrderTask("normal", order, 0, "g"));
+            tasks.add(new OrderTask("high", order, 10, "other"));
+            tasks.add(new OrderTask("normal2", order, 0, "g"));
+            for (var task : tasks) executor.async(task);
+            blocking.latch.countDown();
+            for (var task : tasks) task.await();
+        }
+        var expected = List.of("high", "normal", "normal2", "low");
+        assertTrue(order.equals(expected), "Order: " + order);
+    }
+
+    private static void testFairShare() throws Exception {
+        var order = Collections.synchronizedList(new ArrayList<String>());
+        try (var executor =
+                new TaskExecutor.Builder().maxConcurrency(1).share("a", 3).share("b", 1).build()) {
+            var blocking = new BlockingTask();
+            executor.async(blocking);
+            var tasks = new ArrayList<Task<?, ?>>();
+            for (int i = 0; i < 8; i++) tasks.add(new OrderTask("b", order, 0, "b"));
+            for (int i = 0; i < 8; i++) tasks.add(new OrderTask("a", order, 0, "a"));
+            for (var task : tasks) executor.async(task);
+            blocking.latch.countDown();
+            for (var task : tasks) task.await();
+        }
+        var a = order.subList(0, 8).stream().filter("a"::equals).count();
+        assertTrue(a == 6, "Group a should get 3/4 of the first 8 starts: " + order);
+    }
+
+    private static void testSchedulerForgetsIdleGroups() throws Exception {
+        var order = Collections.synchronizedList(new ArrayList<String>());
+        var executor = new TaskExecutor.Builder().maxConcurrency(1).build();
+        try (executor) {
+            var blocking = new BlockingTask();
+            executor.async(blocking);
+            var tasks = new ArrayList<Task<?, ?>>();
+            for (int i = 0; i < 50; i++) tasks.add(new OrderTask("g" + i, order, i % 3, "g" + i));
+            for (var task : tasks) executor.async(task);
+            tasks.remove(49).cancel();
+            tasks.remove(7).cancel();
+            blocking.latch.countDown();
+            for (var task : tasks) task.await();
+        }
+        assertTrue(order.size() == 48, "Order: " + order);
+        assertTrue(order.get(0).equals("g2"), "Highest priority first: " + order);
+        var tracked = executor.scheduler().tracked();
+        assertTrue(tracked == 0, "Scheduler should forget idle groups, but tracks " + tracked);
+    }
+
+    private static class FlakyTask extends Task<Integer, String> {
+        private final RetryPolicy retryPolicy;
+        private final AtomicInteger failures = new AtomicInteger();
+
+        /** Fails the given number of times (with an IOException), and then completes. */
+        FlakyTask(int failures, RetryPolicy retryPolicy) {
+            super(failures);
+            this.retryPolicy = retryPolicy;
+        }
+
+        @Override
+        public RetryPolicy retryPolicy() {
+            return retryPolicy;
+        }
+
+        @Override
+        protected String execute() throws Exception {
+            if (failures.incrementAndGet() <= input) throw new IOException("Flaky #" + failures);
+            return "Attempt " + attempts();
+        }
+    }
+
+    private static RetryPolicy.Builder fastRetries() {
+        var backoff = Duration.ofMillis(10);
+        return new RetryPolicy.Builder().backoff(backoff, 2, backoff.multipliedBy(10));
+    }
+
+    private static void testRetry() throws Exception {
+        try (var executor = new TaskExecutor()) {
+            var task = new FlakyTask(2, fastRetries().maxAttempts(3).build());
+            var output = executor.await(task);
+            assertTrue("Attempt 3".equals(output), "Output: " + output);
+            assertTrue(task.attempts() == 3, "Attempts: " + task);
+            assertTrue(task.runTime().toMillis() >= 20, "Should include backoff: " + task);
+            assertTrue(task.toString().contains("attempts: 3"), task);
+
+            // Not retried if the failure does not match
+            var policy = fastRetries().retryOn(IllegalStateException.class).build();
+            var notRetried = new FlakyTask(1, policy);
+            executor.async(notRetried);
+            try {
+                notRetried.await();
+                assertTrue(false, "Should have thrown an exception");
+            } catch (UncheckedTaskAwaitException e) {
+                // Expected
+            }
+            assertTrue(notRetried.attempts() == 1, "Should not retry: " + notRetried);
+        }
+    }
+
+    private static void testRetryExhausted() throws Exception {
+        try (var executor = new TaskExecutor()) {
+            var task = new FlakyTask(5, fastRetries().maxAttempts(2).build());
+            executor.async(task);
+            try {
+                task.await();
+                assertTrue(false, "Should have thrown an exception");
+            } catch (UncheckedTaskAwaitException e) {
+                // Expected
+            }
+            assertTrue(task.status() == Status.FAILED, "Should be FAILED: " + task);
+            assertTrue(task.attempts() == 2, "Attempts: " + task);
+            var failure = task.failure().get();
+            assertTrue(failure.getMessage().equals("Flaky #2"), "Last failure: " + failure);
+            var suppressed = failure.getSuppressed();
+            assertTrue(suppressed.length == 1, "Should suppress the first failure: " + failure);
+        }
+    }
+
+    // The next attempt must not be started while the previous one is still returning from run()
+    private static void testRetryWithoutBackoff() throws Exception {
+        try (var executor = new TaskExecutor()) {
+            var policy =
+                    new RetryPolicy.Builder()
+                            .maxAttempts(4)
+                            .backoff(Duration.ZERO, 1, Duration.ZERO)
+                            .jitter(0)
+                            .build();
+            var tasks = new ArrayList<FlakyTask>();
+            for (int i = 0; i < 500; i++) tasks.add(new FlakyTask(3, policy));
+            for (var task : tasks) executor.async(task);
+            for (var task : tasks) {
+                var output = task.toCompletableFuture().get(10, TimeUnit.SECONDS);
+                assertTrue("Attempt 4".equals(output), "Output: " + output);
+            }
+        }
+    }
+
+    private static void testRetryReleasesConcurrency() throws Exception {
+        try (var executor = new TaskExecutor.Builder().maxConcurrency(1).build()) {
+            var backoff = Duration.ofSeconds(1);
+            var policy = new RetryPolicy.Builder().backoff(backoff, 1, backoff).jitter(0).build();
+            var flaky = new FlakyTask(1, policy);
+            executor.async(flaky);
+            while (flaky.attempts() == 0) Thread.sleep(1);
+
+            // Runs while the flaky task waits to be retried, instead of after it
+            var start = System.nanoTime();
+            executor.await(new ImmediateTask("meanwhile"));
+            var waited = Duration.ofNanos(System.nanoTime() - start);
+            assertTrue(waited.toMillis() < 500, "Should not wait for the backoff: " + waited);
+            assertTrue(flaky.status() == Status.IN_PROGRESS, "Should be waiting: " + flaky);
+            assertTrue("Attempt 2".equals(flaky.await()), "Should complete: " + flaky);
+        }
+    }
+
+    private static void testAsyncAll() throws Exception {
+        try (var executor = new TaskExecutor()) {
+            var tasks = new ArrayList<Task<?, String>>();
+            for (int i = 0; i < 100; i++) tasks.add(new ImmediateTask("#" + i));
+            var dependent = new DependentTask("dependent", tasks.get(99), tasks.get(0));
+            tasks.add(dependent);
+            executor.asyncAll(tasks);
+            for (var task : tasks) task.await();
+            for (var task : tasks) assertTrue(task.status() == Status.COMPLETED, task.toString());
+            assertTrue(executor.list().size() == tasks.size(), "All should be listed");
+            var parent = tasks.get(0).parent().get();
+            assertTrue(parent == executor.root(), "Parent should be root: " + parent);
+        }
+    }
+
+    private static void testAsyncAllBlocksWhenQueueFull() throws Exception {
+        try (var executor = new TaskExecutor.Builder().maxConcurrency(2).maxQueued(3).build()) {
+            var tasks = new ArrayList<Task<?, String>>();
+            for (int i = 0; i < 20; i++) tasks.add(new SlowTask("#" + i, 5));
+            executor.asyncAll(tasks);
+            for (var task : tasks) assertTrue(task.await().equals("Completed: " + task.input));
+        }
+    }
+
+    private static void testAsyncAllAlreadySubmitted() throws Exception {
+        try (var executor = new TaskExecutor()) {
+            var submitted = new ImmediateTask("submitted");
+            executor.await(submitted);
+            var before = new ImmediateTask("before");
+            var after = new ImmediateTask("after");
+            try {
+                executor.asyncAll(List.of(before, submitted, after));
+                assertTrue(false, "Should have thrown IllegalStateException");
+            } catch (IllegalStateException e) {
+                assertTrue(e.getMessage().contains("already submitted"), e.getMessage());
+            }
+            assertTrue(before.await().equals("Result: before"), "Task before should run");
+            assertTrue(after.status() == Status.PENDING, "Task after should not be submitted");
+
+            // The rejected task did not leak any room in the queue
+            executor.asyncAll(List.of(after));
+            after.await();
+        }
+    }
+
+    private static void testAwaitAll() throws Exception {
+        try (var executor = new TaskExecutor()) {
+            var first = new ImmediateTask("first");
+            var failing = new FailingTask();
+            var last = new ImmediateTask("last");
+
+            var result = executor.awaitAll(List.of(first, failing, last));
+            assertTrue(!result.succeeded(), "Should not succeed: " + result);
+            var outputs = List.of("Result: first", "Result: last");
+            assertTrue(result.outputs().equals(outputs), "Outputs: " + result.outputs());
+            assertTrue(result.failures().keySet().equals(Set.of(failing)), "Failures: " + result);
+            var failure = result.failures().get(failing);
+            assertTrue(failure.getMessage().contains("Intentional"), failure.toString());
+
+            result = executor.awaitAll(List.of(new ImmediateTask("ok")));
+            assertTrue(result.succeeded(), "Should succeed: " + result);
+            assertTrue(result.outputs().equals(List.of("Result: ok")), result.toString());
+        }
+    }
+
+    private static void testAwaitAny() throws Exception {
+        try (var executor = new TaskExecutor()) {
+            var slow = new SlowTask("slow", 10_000);
+            var failing = new FailingTask();
+            var fast = new ImmediateTask("fast");
+            var output = executor.awaitAny(List.of(slow, failing, fast));
+            assertTrue(output.equals("Result: fast"), "Output: " + output);
+            while (!slow.status().isTerminal()) Thread.sleep(1);
+            assertTrue(slow.status() == Status.CANCELLED, "Others cancelled: " + slow);
+        }
+    }
+
+    private static void testAwaitAnyAllFail() throws Exception {
+        try (var executor = new TaskExecutor()) {
+            try {
+                executor.awaitAny(List.of(new FailingTask(), new FailingTask()));
+                assertTrue(false, "Should have thrown UncheckedTaskAwaitException");
+            } catch (UncheckedTaskAwaitException e) {
+                assertTrue(e.getCause().getMessage().contains("Intentional"), e.toString());
+            }
+        }
+    }
+
+    private static void testStatusChanges() throws Exception {
+        var changes = new LinkedBlockingQueue<StatusChange>();
+        var completed = new CountDownLatch(1);
+        var executor = new TaskExecutor();
+        executor.statusChanges()
+                .subscribe(
+                        new Flow.Subscriber<StatusChange>() {
+                            @Override
+                            public void onSubscribe(Flow.Subscription subscription) {
+                                subscription.request(Long.MAX_VALUE);
+                            }
+
+                            @Override
+                            public void onNext(StatusChange change) {
+                                changes.add(change);
+                            }
+
+                            @Override
+                            public void onError(Throwable throwable) {}
+
+                            @Override
+                            public void onComplete() {
+                                completed.countDown();
+                            }
+                        });
+        var ok = new ImmediateTask("ok");
+        var failing = new FailingTask();
+        executor.awaitAll(List.of(ok, failing));
+        executor.close();
+        assertTrue(completed.await(5, TimeUnit.SECONDS), "Should complete on close");
+
+        // Each task is submitted and ends; but a late subscriber may only see the end
+        var expected = new HashMap<UUID, Status>();
+        for (var change : changes) {
+            if (change.status() == Status.IN_PROGRESS)
+                assertTrue(expected.put(change.id(), change.status()) == null, "Twice: " + change);
+            else {
+                var previous = expected.put(change.id(), change.status());
+                assertTrue(previous == null || previous == Status.IN_PROGRESS, "After " + change);
+            }
+        }
+        assertTrue(expected.get(ok.id()) == Status.COMPLETED, "ok: " + changes);
+        assertTrue(expected.get(failing.id()) == Status.FAILED, "failing: " + changes);
+        var ended = changes.stream().filter(c -> c.id().equals(ok.id())).toList().getLast();
+        assertTrue(ended.at().equals(ok.endedAt().get()), "Should be endedAt: " + ended);
+    }
+
+    /** Sums a range of numbers, by forking subtasks for each half, down to ranges of 100. */
+    private static class SumTask extends Task<SumTask.Range, Long> {
+        record Range(long from, long to, boolean cpuBound, Set<Boolean> onPool) {}
+
+        SumTask(Range range) {
+            super(range);
+        }
+
+        @Override
+        public boolean cpuBound() {
+            return input.cpuBound;
+        }
+
+        @Override
+        protected Long execute() {
+            if (input.to - input.from <= 100) {
+                input.onPool.add(Thread.currentThread() instanceof ForkJoinWorkerThread);
+                long sum = 0;
+                for (long i = input.from; i < input.to; i++) sum += i;
+                return sum;
+            }
+            var middle = (input.from + input.to) / 2;
+            var left = fork(new SumTask(new Range(input.from, middle, cpuBound(), input.onPool)));
+            var right = fork(new SumTask(new Range(middle, input.to, cpuBound(), input.onPool)));
+            return left.await() + right.await();
+        }
+    }
+
+    private static void testCpuBound() {
+        try (var executor = new TaskExecutor()) {
+            for (var cpuBound : new boolean[] {true, false}) {
+                var onPool = ConcurrentHashMap.<Boolean>newKeySet();
+                var task = new SumTask(new SumTask.Range(0, 100_000, cpuBound, onPool));
+                var sum = executor.await(task);
+                assertTrue(sum == 99_999L * 100_000 / 2, "Wrong sum: " + sum);
+                var expected = Set.of(cpuBound);
+                assertTrue(onPool.equals(expected), cpuBound + " ran on the pool: " + onPool);
+                assertTrue(task.children().isEmpty(), "Ended subtasks are not children: " + task);
+                assertTrue(task.endedChildrenCount() == 2, "Ended subtasks are kept: " + task);
+            }
+        }
+    }
+
+    // The parent runs the child inline when it awaits it, but then the child's retry runs later
+    private static void testCpuBoundRetryAwaitedInline() throws Exception {
+        var child =
+                new FlakyTask(1, fastRetries().build()) {
+                    @Override
+                    public boolean cpuBound() {
+                        return true;
+                    }
+                };
+        var parent =
+                new Task<Empty, String>(Empty.INSTANCE) {
+                    @Override
+                    public boolean cpuBound() {
+                        return true;
+                    }
+
+                    @Override
+                    protected String execute() {
+                        return fork(child).await();
+                    }
+                };
+        try (var executor = new TaskExecutor()) {
+            executor.async(parent);
+            var thread = Thread.ofPlatform().start(() -> parent.await());
+            thread.join(Duration.ofSeconds(10));
+            assertTrue(!thread.isAlive(), "Should not hang awaiting the retry: " + parent);
+            assertTrue(parent.output().get().equals("Attempt 2"), "Output: " + parent);
+        }
+    }
+
+    private static void testForkOnlyFromExecute() {
+        var task = new SumTask(new SumTask.Range(0, 1000, true, Set.of()));
+        try {
+            task.fork(new ImmediateTask("not from execute()"));
+            assertTrue(false, "Should have thrown IllegalStateException");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+
+    /** Counts up to its input, checkpointing each step; returns where it (re)started from. */
+    public static class CountingTask extends Task<Integer, Integer> implements Resumable<Integer> {
+        // If set, it is counted down at step 5, which then waits until the task is cancelled
+        static volatile /*TODO @Nullable*/ CountDownLatch blockAt5;
+
+        private int start;
+
+        public CountingTask(Integer to) {
+            super(to);
+        }
+
+        @Override
+        public void resume(Integer next) {
+            this.start = next;
+        }
+
+        @Override
+        protected Integer execute() throws Exception {
+            for (int i = start; i < input; i++) {
+                checkpoint(i);
+                var block = blockAt5;
+                if (i == 5 && block != null) {
+                    block.countDown();
+                    new CountDownLatch(1).await();
+                }
+            }
+            return start;
+        }
+    }
+
+    private static void testCheckpointAndResume() throws Exception {
+        var directory = Files.createTempDirectory("TaskExecutorTest-checkpoints");
+        var first = new CountingTask(10);
+        CountingTask.blockAt5 = new CountDownLatch(1);
+        try (var executor = new TaskExecutor.Builder().checkpoints(directory).build()) {
+            executor.async(first);
+            var blocked = CountingTask.blockAt5.await(5, TimeUnit.SECONDS);
+            assertTrue(blocked, "Should reach step 5: " + first);
+        } finally {
+            CountingTask.blockAt5 = null;
+        }
+        assertTrue(first.status() == Status.CANCELLED, "Closing cancels it: " + first);
+
+        try (var executor = new TaskExecutor.Builder().checkpoints(directory).build()) {
+            var resumed = executor.resume();
+            assertTrue(resumed.size() == 1, "Should resume 1 task: " + resumed);
+            var task = (CountingTask) resumed.getFirst();
+            assertTrue(!task.id().equals(first.id()), "Resumed task is a new one: " + task);
+            assertTrue(task.input() == 10, "Same input: " + task);
+            assertTrue(task.await() == 5, "Should continue from step 5: " + task);
+            assertTrue(executor.resume().isEmpty(), "Nothing left to resume");
+        }
+        try (var files = Files.list(directory)) {
+            assertTrue(files.findAny().isEmpty(), "Checkpoint deleted when task completed");
+        }
+        Files.delete(directory);
+    }
 }
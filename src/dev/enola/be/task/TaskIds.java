@@ -0,0 +1,42 @@
+package dev.enola.be.task;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generator of {@link Task#id()}s.
+ *
+ * <p>Tasks are numbered by a (monotonic) sequence, instead of using {@link UUID#randomUUID()},
+ * which is expensive and contended at high task creation rates, because every call goes to a
+ * shared {@link SecureRandom}. The {@link UUID} of a task combines a random node prefix (chosen
+ * once per JVM) and its sequence number, so that they are still unique across processes and e.g.
+ * in a {@link TaskStore}. They are UUID version 8 ("custom") as per RFC 9562.
+ */
+final class TaskIds {
+
+    private static final long NODE = (new SecureRandom().nextLong() & ~0xF000L) | 0x8000L;
+    private static final long VARIANT = 0x8000000000000000L; // IETF variant, 0b10
+    private static final long VARIANT_MASK = 0xC000000000000000L;
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    /** Next sequence number; never negative. */
+    static long next() {
+        return SEQUENCE.getAndIncrement();
+    }
+
+    /** UUID of a sequence number. */
+    static UUID uuid(long sequence) {
+        return new UUID(NODE, VARIANT | sequence);
+    }
+
+    /** Sequence number of a UUID, or -1 if it was not created by {@link #uuid(long)}. */
+    static long sequence(UUID uuid) {
+        if (uuid.getMostSignificantBits() != NODE) return -1;
+        var lsb = uuid.getLeastSignificantBits();
+        if ((lsb & VARIANT_MASK) != VARIANT) return -1;
+        return lsb & ~VARIANT_MASK;
+    }
+
+    private TaskIds() {}
+}
@@ -0,0 +1,244 @@
+package dev.enola.be.task;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import dev.enola.be.io.LineWriter;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Log files of the output of tasks, in a local directory; see {@link #writer(UUID)}.
+ *
+ * <p>Lines of all tasks are appended to the same segment file, which is memory-mapped; so printing
+ * a line is just a copy into memory, not a system call. A new segment is started when the current
+ * one is full, or older than the maximum age; and the oldest segment is deleted when there are
+ * more than the maximum number of them.
+ *
+ * <p>An index of where the lines of each task are is kept in memory, and rebuilt from the segments
+ * when opening the directory again. Logs are thus independent of the {@link TaskExecutor}, and can
+ * still be read after it evicted the task (or after a restart).
+ *
+ * <p>Each record in a segment is a 4 bytes length (of the entire record), the 16 bytes ID of the
+ * task, and the UTF-8 bytes of the line. A length of 0 marks the end of a segment, which is filled
+ * with zeros when it is created.
+ */
+public final class TaskLogs implements AutoCloseable {
+
+    private static final int HEADER = 4 + 16;
+    private static final String SUFFIX = ".log";
+    private static final Pattern SEGMENT = Pattern.compile("([0-9]{16})\\.log");
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long maxSegmentAgeNanos;
+    private final int maxSegments;
+
+    // Guarded by this; segments are numbered consecutively, oldest first
+    private final ArrayList<Segment> segments = new ArrayList<>();
+    private final HashMap<UUID, Lines> index = new HashMap<>();
+    private Segment active;
+
+    private record Segment(long number, Path file, MappedByteBuffer buffer, long createdNanos) {}
+
+    // Addresses of the lines of a task, as segment number << 32 | offset; removed counts those
+    // which were in deleted segments, so that positions for tail() stay the same
+    private static class Lines {
+        long removed;
+        long[] addresses = new long[4];
+        int size;
+
+        void add(long address) {
+            if (size == addresses.length) addresses = Arrays.copyOf(addresses, size * 2);
+            addresses[size++] = address;
+        }
+    }
+
+    /**
+     * Opens (or creates) a directory of log segments.
+     *
+     * @param directory the directory
+     * @param segmentSize size in bytes of each segment file; longer lines are truncated
+     * @param maxSegmentAge maximum age of a segment, before a new one is started
+     * @param maxSegments maximum number of segments to keep
+     */
+    public TaskLogs(Path directory, int segmentSize, Duration maxSegmentAge, int maxSegments)
+            throws IOException {
+        if (segmentSize < HEADER * 2)
+            throw new IllegalArgumentException("segmentSize too small: " + segmentSize);
+        if (maxSegmentAge.isNegative() || maxSegmentAge.isZero())
+            throw new IllegalArgumentException("maxSegmentAge must be positive: " + maxSegmentAge);
+        if (maxSegments < 1) throw new IllegalArgumentException("maxSegments must be positive");
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegmentAgeNanos = maxSegmentAge.toNanos();
+        this.maxSegments = maxSegments;
+        Files.createDirectories(directory);
+        load();
+    }
+
+    private synchronized void load() throws IOException {
+        List<Path> files;
+        try (var stream = Files.list(directory)) {
+            // Other files, e.g. from someone else, are ignored rather than failing to open
+            files =
+                    stream.filter(f -> SEGMENT.matcher(f.getFileName().toString()).matches())
+                            .sorted()
+                            .toList();
+        }
+        for (var file : files) {
+            var name = file.getFileName().toString();
+            var number = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+            MappedByteBuffer buffer;
+            try (var channel = FileChannel.open(file, READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            segments.add(new Segment(number, file, buffer, System.nanoTime()));
+            int offset = 0;
+            while (offset <= buffer.limit() - HEADER) {
+                var length = buffer.getInt(offset);
+                if (length < HEADER || length > buffer.limit() - offset) break;
+                var id = new UUID(buffer.getLong(offset + 4), buffer.getLong(offset + 12));
+                index.computeIfAbsent(id, _ -> new Lines()).add(number << 32 | offset);
+                offset += length;
+            }
+        }
+        retain();
+    }
+
+    /** Writer which appends lines to the log of the task with the given ID. */
+    public LineWriter writer(UUID id) {
+        return line -> append(id, line);
+    }
+
+    private void append(UUID id, Object line) throws IOException {
+        var full = write(id, String.valueOf(line).getBytes(UTF_8));
+        // Outside of the lock, because it waits for the disk; nothing writes to it anymore anyway
+        if (full != null) full.buffer.force();
+    }
+
+    // Returns the previously active segment if it rotated, else null
+    private synchronized /*TODO @Nullable*/ Segment write(UUID id, byte[] bytes)
+            throws IOException {
+        var length = HEADER + truncated(bytes, segmentSize - HEADER);
+        Segment full = null;
+        if (active == null
+                || active.buffer.remaining() < length
+                || System.nanoTime() - active.createdNanos > maxSegmentAgeNanos) full = rotate();
+
+        var offset = active.buffer.position();
+        active.buffer.putInt(length).putLong(id.getMostSignificantBits());
+        active.buffer.putLong(id.getLeastSignificantBits()).put(bytes, 0, length - HEADER);
+        index.computeIfAbsent(id, _ -> new Lines()).add(active.number << 32 | offset);
+        return full;
+    }
+
+    // Length of at most max bytes of the UTF-8 bytes, without cutting a character in two
+    private static int truncated(byte[] bytes, int max) {
+        if (bytes.length <= max) return bytes.length;
+        var length = max;
+        // Continuation bytes are 10xxxxxx; the character starts before
+        while (length > 0 && (bytes[length] & 0xC0) == 0x80) length--;
+        return length;
+    }
+
+    private /*TODO @Nullable*/ Segment rotate() throws IOException {
+        var number = segments.isEmpty() ? 0 : segments.getLast().number + 1;
+        var file = directory.resolve(String.format("%016d%s", number, SUFFIX));
+        MappedByteBuffer buffer;
+        try (var channel = FileChannel.open(file, CREATE_NEW, READ, WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        var previous = active;
+        active = new Segment(number, file, buffer, System.nanoTime());
+        segments.add(active);
+        retain();
+        return previous;
+    }
+
+    private void retain() throws IOException {
+        while (segments.size() > maxSegments) {
+            var oldest = segments.removeFirst();
+            Files.deleteIfExists(oldest.file);
+            var it = index.values().iterator();
+            while (it.hasNext()) {
+                var lines = it.next();
+                int n = 0;
+                while (n < lines.size && lines.addresses[n] >>> 32 <= oldest.number) n++;
+                if (n == lines.size) it.remove();
+                else if (n > 0) {
+                    lines.removed += n;
+                    lines.size -= n;
+                    System.arraycopy(lines.addresses, n, lines.addresses, 0, lines.size);
+                }
+            }
+        }
+    }
+
+    /** IDs of all tasks with (still) any lines in these logs. */
+    public synchronized Set<UUID> ids() {
+        return Set.copyOf(index.keySet());
+    }
+
+    /** All lines (still) in the log of a task. */
+    public List<String> read(UUID id) {
+        var lines = new ArrayList<String>();
+        tail(id, 0, lines::add);
+        return lines;
+    }
+
+    /**
+     * Passes the lines of the log of a task, from the given position on, to the consumer. This can
+     * be called repeatedly, with the position it returned, to follow a log while it is written.
+     * Lines which were in already deleted segments are skipped.
+     *
+     * @param from position of the first line, 0 for the beginning of the log
+     * @return position after the last line
+     */
+    public long tail(UUID id, long from, Consumer<String> consumer) {
+        long[] addresses;
+        Segment[] buffers;
+        long position;
+        synchronized (this) {
+            var lines = index.get(id);
+            if (lines == null) return from;
+            var start = (int) Math.max(0, from - lines.removed);
+            if (start >= lines.size) return Math.max(from, lines.removed + lines.size);
+            addresses = Arrays.copyOfRange(lines.addresses, start, lines.size);
+            buffers = segments.toArray(new Segment[0]);
+            position = lines.removed + lines.size;
+        }
+        // Outside of the lock (which guarantees that the bytes are visible), so that reading does
+        // not hold up writing; deleted segments stay mapped, as long as they are referenced
+        var first = buffers[0].number;
+        for (var address : addresses) {
+            var buffer = buffers[(int) ((address >>> 32) - first)].buffer;
+            var offset = (int) address;
+            var bytes = new byte[buffer.getInt(offset) - HEADER];
+            buffer.get(offset + HEADER, bytes);
+            consumer.accept(new String(bytes, UTF_8));
+        }
+        return position;
+    }
+
+    /** Forces the current segment to disk; lines can still be read afterwards. */
+    @Override
+    public synchronized void close() {
+        if (active != null) active.buffer.force();
+    }
+}
@@ -0,0 +1,116 @@
+package dev.enola.be.task;
+
+import static ch.vorburger.test.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+public class TaskLogsTest {
+
+    public static void main(String[] args) throws Exception {
+        testWriteReadReopen();
+        testRotationAndRetention();
+        testMaxSegmentAge();
+        testTail();
+    }
+
+    private static void testWriteReadReopen() throws Exception {
+        var directory = Files.createTempDirectory("TaskLogsTest");
+        var a = UUID.randomUUID();
+        var b = UUID.randomUUID();
+        try (var logs = new TaskLogs(directory, 1024, Duration.ofDays(1), 10)) {
+            var writerA = logs.writer(a);
+            var writerB = logs.writer(b);
+            writerA.println("a1");
+            writerB.println("b1");
+            writerA.println("Grüezi ※");
+            writerA.println("");
+            assertTrue(logs.read(a).equals(List.of("a1", "Grüezi ※", "")), "a: " + logs.read(a));
+            assertTrue(logs.read(b).equals(List.of("b1")), "b: " + logs.read(b));
+            assertTrue(logs.read(UUID.randomUUID()).isEmpty(), "Should be empty");
+        }
+
+        // Other files in the directory are ignored
+        Files.writeString(directory.resolve("notes.log"), "Not a segment");
+        try (var logs = new TaskLogs(directory, 1024, Duration.ofDays(1), 10)) {
+            assertTrue(logs.ids().equals(Set.of(a, b)), "ids: " + logs.ids());
+            assertTrue(logs.read(a).equals(List.of("a1", "Grüezi ※", "")), "a: " + logs.read(a));
+            logs.writer(b).println("b2");
+            assertTrue(logs.read(b).equals(List.of("b1", "b2")), "b: " + logs.read(b));
+        }
+    }
+
+    // Records are 20 bytes header + 2 bytes line, so 2 fit into each 50 bytes segment
+    private static void testRotationAndRetention() throws Exception {
+        var directory = Files.createTempDirectory("TaskLogsTest");
+        var id = UUID.randomUUID();
+        var other = UUID.randomUUID();
+        try (var logs = new TaskLogs(directory, 50, Duration.ofDays(1), 2)) {
+            logs.writer(other).println("o0");
+            for (int i = 1; i < 6; i++) logs.writer(id).println("l" + i);
+            try (var files = Files.list(directory)) {
+                assertTrue(files.count() == 2, "Should have deleted old segments");
+            }
+            assertTrue(logs.read(id).equals(List.of("l2", "l3", "l4", "l5")), "id: " + logs.read(id));
+            assertTrue(!logs.ids().contains(other), "Should have dropped other");
+
+            // Lines longer than a segment are truncated
+            logs.writer(id).println("x".repeat(100));
+            var last = logs.read(id).getLast();
+            assertTrue(last.equals("x".repeat(30)), "last: " + last);
+
+            // ... but not within a character; "※" is 3 bytes, so only 10 of them fit into 30
+            logs.writer(id).println("※".repeat(20));
+            last = logs.read(id).getLast();
+            assertTrue(last.equals("※".repeat(10)), "last: " + last);
+            logs.writer(id).println("x" + "※".repeat(20));
+            last = logs.read(id).getLast();
+            assertTrue(last.equals("x" + "※".repeat(9)), "last: " + last);
+        }
+    }
+
+    private static void testMaxSegmentAge() throws Exception {
+        var directory = Files.createTempDirectory("TaskLogsTest");
+        var id = UUID.randomUUID();
+        try (var logs = new TaskLogs(directory, 1024, Duration.ofMillis(10), 10)) {
+            logs.writer(id).println("1");
+            Thread.sleep(20);
+            logs.writer(id).println("2");
+            try (var files = Files.list(directory)) {
+                assertTrue(files.count() == 2, "Should have started a new segment");
+            }
+            assertTrue(logs.read(id).equals(List.of("1", "2")), "id: " + logs.read(id));
+        }
+    }
+
+    private static void testTail() throws Exception {
+        var directory = Files.createTempDirectory("TaskLogsTest");
+        var id = UUID.randomUUID();
+        try (var logs = new TaskLogs(directory, 50, Duration.ofDays(1), 2)) {
+            var writer = logs.writer(id);
+            var tailed = new ArrayList<String>();
+            long position = logs.tail(id, 0, tailed::add);
+            assertTrue(position == 0 && tailed.isEmpty(), "Nothing yet");
+
+            writer.println("l0");
+            writer.println("l1");
+            position = logs.tail(id, position, tailed::add);
+            assertTrue(position == 2 && tailed.equals(List.of("l0", "l1")), "tailed: " + tailed);
+
+            writer.println("l2");
+            position = logs.tail(id, position, tailed::add);
+            assertTrue(position == 3 && tailed.getLast().equals("l2"), "tailed: " + tailed);
+
+            // Positions stay the same when segments are deleted, here those with l0-l3
+            for (int i = 3; i < 7; i++) writer.println("l" + i);
+            tailed.clear();
+            position = logs.tail(id, 4, tailed::add);
+            assertTrue(position == 7, "position: " + position);
+            assertTrue(tailed.equals(List.of("l4", "l5", "l6")), "tailed: " + tailed);
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package dev.enola.be.task;
+
+import dev.enola.be.task.TaskExecutor.LoggingFutureTask;
+import dev.enola.be.task.TaskExecutor.QueueFull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Admission control, priorities, fair sharing and concurrency limits of a {@link TaskExecutor}.
+ *
+ * <p>Tasks which are ready to run are started right away if that keeps the sum of the {@link
+ * Task#weight()} of all running tasks within the global limit, and the number of running tasks of
+ * the same class within its limit; otherwise they wait until running tasks finish. The number of
+ * admitted tasks which have not started yet (either because they wait for their dependencies, or
+ * in the queues) is bounded as well.
+ *
+ * <p>Of the waiting tasks, the one with the highest {@link Task#priority()} starts first (strictly,
+ * so lower priorities can starve). Among equal priorities, the {@link Task#shareGroup()}s share the
+ * executor in proportion to their {@link TaskExecutor.Builder#share(String, int)} weights, using
+ * Weighted Fair Queuing: every group has a "virtual time", which advances by the weight of each of
+ * its tasks that start divided by the group's share, and the group which is furthest behind goes
+ * next. Within a group, tasks start in the order they became ready.
+ */
+final class TaskScheduler {
+
+    private final Consumer<LoggingFutureTask<?>> starter;
+    private final int maxWeight;
+    private final Map<Class<?>, Integer> maxPerType;
+    private final Map<String, Integer> shares;
+    private final int maxQueued;
+    private final QueueFull whenQueueFull;
+    private final boolean unlimited;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    // Only of tasks which are waiting or running, so that these don't grow with every group ever
+    private final Map<Class<?>, Type> types = new HashMap<>();
+    private final Map<String, Group> groups = new HashMap<>();
+    private final Map<QueueKey, Queue> queues = new HashMap<>();
+    // The queues whose type is below its concurrency limit, by their head; see Queue.schedule()
+    private final TreeSet<Queue> heads = new TreeSet<>(TaskScheduler::compare);
+    private long sequence;
+    private double virtualTime;
+    private int runningWeight;
+    private int queued;
+
+    private static final class Type {
+        private final Class<?> type;
+        private final int max;
+        private final List<Queue> queues = new ArrayList<>();
+        private int running;
+
+        private Type(Class<?> type, int max) {
+            this.type = type;
+            this.max = max;
+        }
+    }
+
+    private static final class Group {
+        private final int share;
+        private final List<Queue> queues = new ArrayList<>();
+        private double virtualTime;
+        private int waiting;
+
+        private Group(int share) {
+            this.share = share;
+        }
+    }
+
+    private record QueueKey(String group, Class<?> type) {}
+
+    // Waiting tasks of one class in one group; highest priority first, then FIFO
+    private static final class Queue {
+        private final QueueKey key;
+        private final Group group;
+        private final Type type;
+        private final PriorityQueue<LoggingFutureTask<?>> ready =
+                new PriorityQueue<>(
+                        Comparator.comparingInt((LoggingFutureTask<?> f) -> -f.priority)
+                                .thenComparingLong(f -> f.sequence));
+
+        // The head and group virtual time which it is sorted by in heads, or null if not in it
+        private /*TODO @Nullable*/ LoggingFutureTask<?> scheduledHead;
+        private double scheduledTime;
+
+        private Queue(QueueKey key, Group group, Type type) {
+            this.key = key;
+            this.group = group;
+            this.type = type;
+        }
+
+        private LoggingFutureTask<?> head() {
+            // Tasks cancelled while queued have already been accounted for by finished()
+            while (!ready.isEmpty() && ready.peek().isDone()) {
+                ready.poll();
+                group.waiting--;
+            }
+            return ready.peek();
+        }
+    }
+
+    TaskScheduler(
+            Consumer<LoggingFutureTask<?>> starter,
+            int maxWeight,
+            Map<Class<?>, Integer> maxPerType,
+            Map<String, Integer> shares,
+            int maxQueued,
+            QueueFull whenQueueFull) {
+        this.starter = starter;
+        this.maxWeight = maxWeight;
+        this.maxPerType = Map.copyOf(maxPerType);
+        this.shares = Map.copyOf(shares);
+        this.maxQueued = maxQueued;
+        this.whenQueueFull = whenQueueFull;
+        this.unlimited =
+                maxWeight == Integer.MAX_VALUE
+                        && maxPerType.isEmpty()
+                        && maxQueued == Integer.MAX_VALUE;
+    }
+    /**
+     * Reserves room for a new task which is about to be submitted. Blocks or throws if too many
+     * admitted tasks have not started yet.
+     *
+     * @throws RejectedExecutionException if full (and {@link QueueFull#REJECT}) or interrupted
+     */
+    void admit() throws RejectedExecutionException {
+        admit(1);
+    }
+
+    /**
+     * Reserves room for up to max new tasks, see {@link #admit()}; blocks (or throws) only if there
+     * is no room for any.
+     *
+     * @return how many were reserved, at least 1
+     */
+    int admit(int max) throws RejectedExecutionException {
+        if (unlimited) return max;
+        lock.lock();
+        try {
+            while (queued >= maxQueued) {
+                if (whenQueueFull == QueueFull.REJECT)
+                    throw new RejectedExecutionException(
+                            "Too many (" + queued + ") tasks waiting to start");
+                try {
+                    notFull.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException("Interrupted while waiting to submit", e);
+                }
+            }
+            var admitted = Math.min(max, maxQueued - queued);
+            queued += admitted;
+            return admitted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Gives back what {@link #admit()} reserved, for a task which was not submitted after all. */
+    void unadmit() {
+        unadmit(1);
+    }
+
+    void unadmit(int count) {
+        if (unlimited || count == 0) return;
+        lock.lock();
+        try {
+            queued -= count;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Whether there are no limits, so that tasks are started as soon as they are ready. */
+    boolean unlimited() {
+        return unlimited;
+    }
+
+    // package-private, for TaskExecutorTest (only); how many types, groups and queues it tracks
+    int tracked() {
+        lock.lock();
+        try {
+            return types.size() + groups.size() + queues.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Starts the (admitted) task as soon as the concurrency limits permit. */
+    void ready(LoggingFutureTask<?> futureTask) {
+        ready(List.of(futureTask));
+    }
+
+    /** Starts the (admitted) tasks as soon as the concurrency limits permit. */
+    void ready(List<LoggingFutureTask<?>> futureTasks) {
+        if (unlimited) {
+            for (var futureTask : futureTasks) {
+                futureTask.started = true;
+                starter.accept(futureTask);
+            }
+            return;
+        }
+        List<LoggingFutureTask<?>> start;
+        lock.lock();
+        try {
+            for (var futureTask : futureTasks) {
+                futureTask.sequence = sequence++;
+                futureTask.priority = futureTask.task.priority();
+                var queue = queue(futureTask.task);
+                // A group which was idle must not have saved up credit for a burst, so catch up
+                if (queue.group.waiting++ == 0)
+                    queue.group.virtualTime = Math.max(queue.group.virtualTime, virtualTime);
+                unschedule(queue);
+                queue.ready.add(futureTask);
+                schedule(queue);
+            }
+            start = drain();
+        } finally {
+            lock.unlock();
+        }
+        start.forEach(starter);
+    }
+
+    /**
+     * Gives back the concurrency of a started task which is going to be {@link #ready} again later
+     * (i.e. retried); meanwhile it counts as admitted but not started.
+     */
+    void release(LoggingFutureTask<?> futureTask) {
+        if (unlimited) return;
+        List<LoggingFutureTask<?>> start;
+        lock.lock();
+        try {
+            runningWeight -= futureTask.weight;
+            stopped(types.get(futureTask.task.getClass()));
+            futureTask.started = false;
+            queued++;
+            start = drain();
+        } finally {
+            lock.unlock();
+        }
+        start.forEach(starter);
+    }
+
+    /** Must be called once for every admitted task, when it is done (or can never start). */
+    void finished(LoggingFutureTask<?> futureTask) {
+        if (unlimited) return;
+        List<LoggingFutureTask<?>> start;
+        lock.lock();
+        try {
+            if (futureTask.started) {
+                runningWeight -= futureTask.weight;
+                stopped(types.get(futureTask.task.getClass()));
+            } else dequeued();
+            start = drain();
+        } finally {
+            lock.unlock();
+        }
+        start.forEach(starter);
+    }
+
+    private void dequeued() {
+        queued--;
+        notFull.signal();
+    }
+
+    private void stopped(Type type) {
+        // Its queues were left out of heads while the type was at its limit
+        if (type.running-- == type.max) {
+            for (int i = type.queues.size() - 1; i >= 0; i--) schedule(type.queues.get(i));
+        }
+        prune(type);
+    }
+
+    private Type type(Task<?, ?> task) {
+        return types.computeIfAbsent(
+                task.getClass(),
+                t -> new Type(t, maxPerType.getOrDefault(t, Integer.MAX_VALUE)));
+    }
+
+    private Queue queue(Task<?, ?> task) {
+        var name = task.shareGroup();
+        var key = new QueueKey(name, task.getClass());
+        var queue = queues.get(key);
+        if (queue == null) {
+            var group = groups.computeIfAbsent(name, g -> new Group(shares.getOrDefault(g, 1)));
+            queue = new Queue(key, group, type(task));
+            queues.put(key, queue);
+            group.queues.add(queue);
+            queue.type.queues.add(queue);
+        }
+        return queue;
+    }
+
+    // Puts the queue into heads, unless it's empty (then it's pruned) or its type is at its limit;
+    // iterating callers therefore go backwards. Must not be in heads, see unschedule().
+    private void schedule(Queue queue) {
+        var head = queue.head();
+        if (head == null) {
+            queues.remove(queue.key);
+            queue.group.queues.remove(queue);
+            queue.type.queues.remove(queue);
+            // A group which comes back later starts again at the current virtualTime, as if idle
+            if (queue.group.queues.isEmpty()) groups.remove(queue.key.group());
+            prune(queue.type);
+        } else if (queue.type.running < queue.type.max) {
+            queue.scheduledHead = head;
+            queue.scheduledTime = queue.group.virtualTime;
+            heads.add(queue);
+        }
+    }
+
+    // Must be called before anything which it is sorted by changes (while it is in heads)
+    private void unschedule(Queue queue) {
+        if (queue.scheduledHead != null) {
+            heads.remove(queue);
+            queue.scheduledHead = null;
+        }
+    }
+
+    private void prune(Type type) {
+        if (type.running == 0 && type.queues.isEmpty()) types.remove(type.type);
+    }
+
+    private List<LoggingFutureTask<?>> drain() {
+        List<LoggingFutureTask<?>> start = List.of();
+        while (!heads.isEmpty()) {
+            // Best ready task, among those whose type is still below its concurrency limit
+            var next = heads.first();
+            var futureTask = next.head();
+            if (futureTask != next.scheduledHead) {
+                // Its head was cancelled while queued, so it's sorted too early
+                unschedule(next);
+                schedule(next);
+                continue;
+            }
+
+            // A task heavier than maxWeight still runs, but only on its own
+            var weight = Math.max(1, futureTask.task.weight());
+            if (runningWeight > 0 && runningWeight + weight > maxWeight) return start;
+
+            unschedule(next);
+            next.ready.poll();
+            next.type.running++;
+            next.group.waiting--;
+            virtualTime = next.group.virtualTime;
+            next.group.virtualTime += (double) weight / next.group.share;
+            runningWeight += weight;
+            futureTask.weight = weight;
+            futureTask.started = true;
+            dequeued();
+            if (start.isEmpty()) start = new ArrayList<>();
+            start.add(futureTask);
+
+            // The group's virtual time advanced, and the type may have reached its limit
+            var group = next.group;
+            for (int i = group.queues.size() - 1; i >= 0; i--) {
+                var queue = group.queues.get(i);
+                unschedule(queue);
+                schedule(queue);
+            }
+            if (next.type.running == next.type.max) next.type.queues.forEach(this::unschedule);
+        }
+        return start;
+    }
+
+    // Orders queues by whose head should start first, as of when they were put into heads
+    private static int compare(Queue a, Queue b) {
+        var headA = a.scheduledHead;
+        var headB = b.scheduledHead;
+        if (headA.priority != headB.priority)
+            return Integer.compare(headB.priority, headA.priority);
+        if (a.scheduledTime != b.scheduledTime)
+            return Double.compare(a.scheduledTime, b.scheduledTime);
+        return Long.compare(headA.sequence, headB.sequence);
+    }
+}
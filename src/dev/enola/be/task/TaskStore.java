@@ -0,0 +1,24 @@
+package dev.enola.be.task;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Store of completed tasks, where a {@link TaskExecutor} keeps them after evicting them from
+ * memory; see {@link TaskExecutor.Builder#store(TaskStore)}.
+ *
+ * <p>A store has its own retention policy, independently of the {@link TaskExecutor}.
+ */
+public interface TaskStore {
+
+    /** Stores a task, which must be in a {@link Status#isTerminal()} state. */
+    void put(Task<?, ?> task) throws IOException;
+
+    /** Obtains a (read-only) {@link StoredTask}, if this store (still) has it. */
+    Optional<Task<?, ?>> get(UUID id) throws IOException;
+
+    /** IDs of all tasks in this store. */
+    Set<UUID> ids();
+}
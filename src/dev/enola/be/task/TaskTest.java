@@ -4,6 +4,8 @@ import static ch.vorburger.test.Assert.assertTrue;
 
 import dev.enola.be.task.test.ImmediateTask;
 
+import java.util.UUID;
+
 public class TaskTest {
 
     public static void main(String[] args) throws Exception {
@@ -11,6 +13,7 @@ public class TaskTest {
         testTaskInputIsStored();
         testInitialStatusIsPending();
         testMultipleTasksHaveDifferentIds();
+        testIdIsSequential();
     }
 
     private static void testTaskHasNonNullId() {
@@ -35,4 +38,15 @@ public class TaskTest {
         var task2 = new ImmediateTask("test2");
         assertTrue(!task1.id().equals(task2.id()), "Different tasks should have different IDs");
     }
+
+    private static void testIdIsSequential() {
+        var task1 = new ImmediateTask("test1");
+        var task2 = new ImmediateTask("test2");
+        assertTrue(task1.id().version() == 8, "Should be a UUIDv8: " + task1.id());
+        assertTrue(task1.id().variant() == 2, "Should be IETF variant: " + task1.id());
+        var sequence1 = TaskIds.sequence(task1.id());
+        assertTrue(sequence1 >= 0, "Should have a sequence: " + task1.id());
+        assertTrue(TaskIds.sequence(task2.id()) > sequence1, "Sequence should increase");
+        assertTrue(TaskIds.sequence(UUID.randomUUID()) == -1, "Not a sequence UUID");
+    }
 }
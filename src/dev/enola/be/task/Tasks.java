@@ -0,0 +1,70 @@
+package dev.enola.be.task;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking composition of several {@link Task}s.
+ *
+ * <p>For a single task, use {@link Task#toCompletableFuture()} or {@link Task#whenDone(Runnable)}.
+ */
+public final class Tasks {
+
+    /**
+     * Fan-in: Returns a future which completes with the outputs of all tasks (in the same order),
+     * once they all completed; or exceptionally as soon as any of them failed or was cancelled.
+     */
+    public static <O> CompletableFuture<List<O>> allOf(Collection<? extends Task<?, O>> tasks) {
+        var list = List.copyOf(tasks);
+        var result = new CompletableFuture<List<O>>();
+        if (list.isEmpty()) result.complete(List.of());
+        var remaining = new AtomicInteger(list.size());
+        for (var task : list) {
+            task.whenDone(
+                    () -> {
+                        switch (task.status()) {
+                            case COMPLETED -> {
+                                if (remaining.decrementAndGet() == 0)
+                                    result.complete(
+                                            list.stream().map(t -> t.output().get()).toList());
+                            }
+                            case FAILED -> result.completeExceptionally(task.failure().get());
+                            case CANCELLED -> result.completeExceptionally(cancelled(task));
+                            case PENDING, IN_PROGRESS ->
+                                    throw new IllegalStateException(task.toString());
+                        }
+                    });
+        }
+        return result;
+    }
+
+    /**
+     * First-of-N: Returns a future which completes with the output of whichever task completes
+     * first; or exceptionally (with the last failure) if none of them completes.
+     */
+    public static <O> CompletableFuture<O> anyOf(Collection<? extends Task<?, O>> tasks) {
+        var list = List.copyOf(tasks);
+        if (list.isEmpty()) throw new IllegalArgumentException("No tasks");
+        var result = new CompletableFuture<O>();
+        var remaining = new AtomicInteger(list.size());
+        for (var task : list) {
+            task.whenDone(
+                    () -> {
+                        if (task.status() == Status.COMPLETED) result.complete(task.output().get());
+                        else if (remaining.decrementAndGet() == 0)
+                            result.completeExceptionally(
+                                    task.failure().orElseGet(() -> cancelled(task)));
+                    });
+        }
+        return result;
+    }
+
+    private static CancellationException cancelled(Task<?, ?> task) {
+        return new CancellationException("Task cancelled: " + task.id());
+    }
+
+    private Tasks() {}
+}
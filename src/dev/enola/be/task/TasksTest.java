@@ -0,0 +1,127 @@
+package dev.enola.be.task;
+
+import static ch.vorburger.test.Assert.assertTrue;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import dev.enola.be.task.test.FailingTask;
+import dev.enola.be.task.test.ImmediateTask;
+import dev.enola.be.task.test.SlowTask;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TasksTest {
+
+    public static void main(String[] args) throws Exception {
+        testWhenDone();
+        testToCompletableFuture();
+        testAwaitFromCallback();
+        testAllOf();
+        testAllOfFailure();
+        testAnyOf();
+    }
+
+    private static void testWhenDone() throws Exception {
+        try (var executor = new TaskExecutor()) {
+            var calls = new AtomicInteger();
+            var task = new ImmediateTask("test");
+            task.whenDone(calls::incrementAndGet); // before submission
+            executor.await(task);
+            task.whenDone(calls::incrementAndGet); // after completion, runs right away
+            assertTrue(calls.get() == 2, "Both callbacks should have run: " + calls);
+        }
+    }
+
+    private static void testToCompletableFuture() throws Exception {
+        try (var executor = new TaskExecutor()) {
+            var task = new ImmediateTask("test");
+            var length = task.toCompletableFuture().thenApply(String::length);
+            executor.async(task);
+            assertTrue(length.get() == "Result: test".length(), "thenApply: " + length.get());
+
+            var failing = new FailingTask();
+            var future = failing.toCompletableFuture();
+            executor.async(failing);
+            try {
+                future.get();
+                assertTrue(false, "Should have failed");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() == failing.failure().get(), "Cause should be failure");
+            }
+
+            var slow = new SlowTask("test", 1000);
+            future = slow.toCompletableFuture();
+            executor.async(slow);
+            slow.cancel();
+            assertTrue(future.isCancelled(), "Should be cancelled");
+        }
+    }
+
+    private static void testAwaitFromCallback() throws Exception {
+        try (var executor = new TaskExecutor()) {
+            var task = new SlowTask("test", 20);
+            var awaited = new CompletableFuture<String>();
+            task.whenDone(() -> awaited.complete(task.await()));
+            var length = task.toCompletableFuture().thenApply(_ -> task.await().length());
+            executor.async(task);
+            assertTrue(awaited.get(5, SECONDS).equals("Completed: test"), "Should not block");
+            assertTrue(length.get(5, SECONDS) == "Completed: test".length(), "thenApply");
+        }
+    }
+
+    private static void testAllOf() throws Exception {
+        try (var executor = new TaskExecutor()) {
+            var tasks = List.of(new SlowTask("a", 20), new ImmediateTask("b"));
+            var all = Tasks.allOf(tasks);
+            tasks.forEach(executor::async);
+            var outputs = all.get();
+            assertTrue(List.of("Completed: a", "Result: b").equals(outputs), outputs);
+        }
+    }
+
+    private static void testAllOfFailure() throws Exception {
+        try (var executor = new TaskExecutor()) {
+            var slow = new SlowTask("a", 5000);
+            var failing = new FailingTask();
+            var all = Tasks.<String>allOf(List.of(slow, failing));
+            executor.async(slow);
+            executor.async(failing);
+            try {
+                all.get();
+                assertTrue(false, "Should have failed");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() == failing.failure().get(), e.getCause());
+            }
+            assertTrue(slow.status() == Status.IN_PROGRESS, "Should fail fast, without waiting");
+
+            slow = new SlowTask("a", 5000);
+            all = Tasks.allOf(List.of(slow));
+            executor.async(slow);
+            slow.cancel();
+            try {
+                all.get();
+                assertTrue(false, "Should have been cancelled");
+            } catch (CancellationException e) {
+                // Expected
+            }
+        }
+    }
+
+    private static void testAnyOf() throws Exception {
+        try (var executor = new TaskExecutor()) {
+            var slow = new SlowTask("slow", 5000);
+            var fast = new SlowTask("fast", 10);
+            var failing = new FailingTask();
+            var any = Tasks.<String>anyOf(List.of(slow, failing, fast));
+            executor.async(slow);
+            executor.async(failing);
+            executor.async(fast);
+            assertTrue("Completed: fast".equals(any.get()), "anyOf: " + any.get());
+            assertTrue(slow.status() == Status.IN_PROGRESS, "slow should still run");
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package dev.enola.be.task;
+
+import dev.enola.be.task.WorkerProtocol.Cancel;
+import dev.enola.be.task.WorkerProtocol.Endpoint;
+import dev.enola.be.task.WorkerProtocol.Execute;
+import dev.enola.be.task.WorkerProtocol.Failure;
+import dev.enola.be.task.WorkerProtocol.Heartbeat;
+import dev.enola.be.task.WorkerProtocol.Hello;
+import dev.enola.be.task.WorkerProtocol.Result;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.Serializable;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Main class of the worker JVMs which a {@link WorkerPool} launches; not intended to be run
+ * directly.
+ *
+ * <p>It connects to the pool's Unix domain socket, runs each {@link Remotable} task it receives on
+ * its own virtual thread, and sends back its output or failure. It exits when the connection to
+ * the pool is closed, e.g. because the pool was closed, or the JVM which created it died.
+ */
+public final class Worker {
+
+    private static final Logger LOG = Logger.getLogger(Worker.class.getName());
+
+    private final Endpoint endpoint;
+    private final Map<Long, Thread> running = new ConcurrentHashMap<>();
+
+    private Worker(Endpoint endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /** Arguments are the path of the pool's socket, and the heartbeat interval in milliseconds. */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) throw new IllegalArgumentException("Usage: Worker SOCKET MILLIS");
+        var address = UnixDomainSocketAddress.of(args[0]);
+        var heartbeatInterval = Duration.ofMillis(Long.parseLong(args[1]));
+        var channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        channel.connect(address);
+        var worker = new Worker(new Endpoint(channel));
+        worker.endpoint.send(new Hello(ProcessHandle.current().pid()));
+        Thread.ofPlatform()
+                .daemon()
+                .name("Worker-Heartbeat")
+                .start(() -> worker.beat(heartbeatInterval));
+        try {
+            worker.serve();
+        } catch (IOException e) {
+            LOG.log(Level.FINE, "Pool disconnected", e);
+        }
+        // Running tasks are abandoned, the pool already considers them failed
+        System.exit(0);
+    }
+
+    private void beat(Duration interval) {
+        try {
+            while (true) {
+                endpoint.send(new Heartbeat());
+                Thread.sleep(interval);
+            }
+        } catch (IOException | InterruptedException e) {
+            LOG.log(Level.FINE, "Heartbeat stopped", e);
+        }
+    }
+
+    private void serve() throws IOException {
+        while (true) {
+            switch (endpoint.receive()) {
+                case Execute execute -> {
+                    var thread = Thread.ofVirtual().unstarted(() -> execute(execute));
+                    running.put(execute.call(), thread);
+                    thread.start();
+                }
+                case Cancel cancel -> {
+                    var thread = running.get(cancel.call());
+                    if (thread != null) thread.interrupt();
+                }
+                default -> throw new IOException("Unexpected message");
+            }
+        }
+    }
+
+    private void execute(Execute execute) {
+        var call = execute.call();
+        try {
+            var task = Task.newInstance(execute.type(), execute.input());
+            Thread.currentThread().setName(task.id().toString());
+            var output = task.execute();
+            if (output == null)
+                throw new NullPointerException("Task.execute() must not return null: " + task);
+            if (!(output instanceof Serializable serializable))
+                throw new NotSerializableException(output.getClass().getName());
+            reply(new Result(call, serializable), call);
+        } catch (Throwable t) {
+            reply(new Failure(call, t), call);
+        } finally {
+            running.remove(call);
+        }
+    }
+
+    // If the output or failure cannot be serialized, the pool at least gets a failure saying so
+    private void reply(WorkerProtocol.Message message, long call) {
+        try {
+            try {
+                endpoint.send(message);
+            } catch (NotSerializableException e) {
+                var failure = message instanceof Failure f ? f.failure() : null;
+                var replacement = new IOException("Cannot send to pool: " + message, e);
+                if (failure != null) replacement.setStackTrace(failure.getStackTrace());
+                endpoint.send(new Failure(call, replacement));
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to reply to pool: " + message, e);
+        }
+    }
+}
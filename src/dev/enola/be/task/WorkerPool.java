@@ -0,0 +1,417 @@
+package dev.enola.be.task;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import dev.enola.be.task.WorkerProtocol.Cancel;
+import dev.enola.be.task.WorkerProtocol.Endpoint;
+import dev.enola.be.task.WorkerProtocol.Execute;
+import dev.enola.be.task.WorkerProtocol.Failure;
+import dev.enola.be.task.WorkerProtocol.Heartbeat;
+import dev.enola.be.task.WorkerProtocol.Hello;
+import dev.enola.be.task.WorkerProtocol.Result;
+import dev.enola.common.concurrent.Executors;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.NotSerializableException;
+import java.io.Serial;
+import java.io.Serializable;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pool of local worker JVMs, in which a {@link TaskExecutor} (see {@link
+ * TaskExecutor.Builder#workers(WorkerPool)}) runs {@link Remotable} tasks; e.g. to isolate
+ * memory-hungry tasks from its own heap (and GC pauses), or to use more memory than one heap can.
+ *
+ * <p>Tasks are still submitted to, and scheduled (incl. concurrency limits, timeouts, retries
+ * etc.) by, the {@link TaskExecutor}; only their {@link Task#execute()} runs in a worker, which is
+ * chosen by the fewest running tasks. Cancelling a task interrupts it in the worker.
+ *
+ * <p>The pool and its workers talk over a Unix domain socket, see {@link Worker}. Workers send a
+ * heartbeat; a worker which exits, or which misses heartbeats (e.g. because it is stuck in a long
+ * GC, or out of memory), is killed and replaced by a new one; and tasks which were running on it
+ * are resubmitted to another worker, up to {@link Builder#maxResubmits(int)} times. If no
+ * worker is left, and none could be started to replace them, then tasks fail with an {@link
+ * IOException}.
+ */
+public final class WorkerPool implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(WorkerPool.class.getName());
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(30);
+
+    private final List<String> command;
+    private final Duration heartbeatTimeout;
+    private final int maxResubmits;
+    private final Path directory;
+    private final ServerSocketChannel server;
+    private final List<Connection> workers = new ArrayList<>(); // guarded by this
+    private int replacing; // guarded by this, how many replacement workers are being started
+    private /*TODO @Nullable*/ IOException replaceFailure; // guarded by this, the last one
+    private final Object starting = new Object();
+    private final AtomicLong calls = new AtomicLong();
+    private final ScheduledExecutorService heartbeats =
+            Executors.newSingleThreadScheduledExecutor("WorkerPool-Heartbeat", LOG);
+    private volatile boolean closed;
+
+    public static class Builder {
+        private int workers = 2;
+        private String classpath = System.getProperty("java.class.path");
+        private List<String> jvmArgs = List.of();
+        private Duration heartbeatInterval = Duration.ofSeconds(1);
+        private Duration heartbeatTimeout = Duration.ofSeconds(10);
+        private int maxResubmits = 2;
+
+        /** Number of worker JVMs. Default is 2. */
+        public Builder workers(int workers) {
+            if (workers < 1) throw new IllegalArgumentException("workers must be positive");
+            this.workers = workers;
+            return this;
+        }
+
+        /** Classpath of the worker JVMs. Default is the same as this JVM's. */
+        public Builder classpath(String classpath) {
+            this.classpath = requireNonNull(classpath, "classpath");
+            return this;
+        }
+
+        /** Additional JVM arguments of the worker JVMs, e.g. <code>-Xmx4g</code>. */
+        public Builder jvmArgs(List<String> jvmArgs) {
+            this.jvmArgs = List.copyOf(jvmArgs);
+            return this;
+        }
+
+        /**
+         * How often workers send a heartbeat, and how long after the last one they are considered
+         * dead. Default is every 1s, and dead after 10s.
+         */
+        public Builder heartbeat(Duration interval, Duration timeout) {
+            if (interval.isNegative() || interval.isZero() || timeout.compareTo(interval) <= 0)
+                throw new IllegalArgumentException("Need 0 < interval < timeout: " + interval);
+            this.heartbeatInterval = interval;
+            this.heartbeatTimeout = timeout;
+            return this;
+        }
+
+        /**
+         * How many times a task is resubmitted to another worker, when the worker which ran it
+         * died. Default is 2; so a task which itself kills its worker does not kill them all.
+         */
+        public Builder maxResubmits(int maxResubmits) {
+            if (maxResubmits < 0) throw new IllegalArgumentException("maxResubmits must be >= 0");
+            this.maxResubmits = maxResubmits;
+            return this;
+        }
+
+        /** Starts the worker JVMs, and waits until they are all connected. */
+        public WorkerPool build() throws IOException {
+            return new WorkerPool(this);
+        }
+    }
+
+    private WorkerPool(Builder builder) throws IOException {
+        heartbeatTimeout = builder.heartbeatTimeout;
+        maxResubmits = builder.maxResubmits;
+        directory = Files.createTempDirectory("enola-workers");
+        var socket = directory.resolve("pool.socket");
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socket));
+        server.configureBlocking(false); // see accept()
+
+        var java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        var command = new ArrayList<String>();
+        command.add(java);
+        command.addAll(builder.jvmArgs);
+        command.addAll(List.of("-cp", builder.classpath, Worker.class.getName()));
+        command.add(socket.toString());
+        command.add(Long.toString(builder.heartbeatInterval.toMillis()));
+        this.command = List.copyOf(command);
+
+        try {
+            for (int i = 0; i < builder.workers; i++) start();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        var m = builder.heartbeatInterval.toMillis();
+        heartbeats.scheduleAtFixedRate(this::checkHeartbeats, m, m, MILLISECONDS);
+    }
+
+    /** Process IDs of the currently running worker JVMs. */
+    public synchronized List<Long> pids() {
+        return workers.stream().map(worker -> worker.process.pid()).toList();
+    }
+
+    // Starting workers one at a time means that the next connection must be from that worker;
+    // but without holding the lock of this, so that other workers can be used meanwhile.
+    private void start() throws IOException {
+        Connection connection;
+        synchronized (starting) {
+            if (closed) return;
+            var process = new ProcessBuilder(command).inheritIO().start();
+            SocketChannel channel = null;
+            try {
+                channel = accept(process);
+                var endpoint = new Endpoint(channel);
+                if (!(endpoint.receive() instanceof Hello hello) || hello.pid() != process.pid())
+                    throw new IOException("Unexpected worker connected, instead of " + process);
+                connection = new Connection(process, endpoint);
+            } catch (IOException e) {
+                process.destroyForcibly();
+                if (channel != null) channel.close();
+                throw e;
+            }
+        }
+        synchronized (this) {
+            if (closed) {
+                connection.close();
+                return;
+            }
+            workers.add(connection);
+            notifyAll();
+        }
+        var name = "WorkerPool-" + connection.process.pid();
+        Thread.ofVirtual().name(name).start(connection::receive);
+        LOG.fine(() -> "Started worker " + connection);
+    }
+
+    // Polls, so that it does not wait forever for a worker which failed to start
+    private SocketChannel accept(Process process) throws IOException {
+        var deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (true) {
+            var channel = server.accept();
+            if (channel != null) return channel; // which is in blocking mode
+            if (!process.isAlive())
+                throw new IOException("Worker exited with " + process.exitValue() + ": " + command);
+            if (System.nanoTime() - deadline > 0)
+                throw new IOException("Worker did not connect within " + STARTUP_TIMEOUT);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while starting worker");
+            }
+        }
+    }
+
+    private void checkHeartbeats() {
+        var deadline = System.nanoTime() - heartbeatTimeout.toNanos();
+        List<Connection> current;
+        synchronized (this) {
+            current = List.copyOf(workers);
+        }
+        for (var worker : current) {
+            if (worker.lastHeartbeat - deadline < 0)
+                worker.died(new IOException("Worker missed heartbeats: " + worker));
+        }
+    }
+
+    private synchronized Connection pick() throws InterruptedException, IOException {
+        while (workers.isEmpty()) {
+            if (closed) throw new IllegalStateException("WorkerPool closed");
+            if (replacing == 0) throw new IOException("No workers left", replaceFailure);
+            wait();
+        }
+        Connection best = workers.get(0);
+        for (var worker : workers) if (worker.calls.size() < best.calls.size()) best = worker;
+        return best;
+    }
+
+    /**
+     * Runs the task in a worker, and waits for its output.
+     *
+     * @throws InterruptedException if interrupted while waiting, e.g. because the task was
+     *     cancelled; the task is then also interrupted in the worker
+     * @throws Exception which the task's execute() threw in the worker, or an {@link IOException}
+     *     if the worker died more than {@link Builder#maxResubmits(int)} times, or if there are no
+     *     workers left
+     */
+    // package-private, for TaskCallable (only)
+    <O> O execute(Task<?, O> task) throws Exception {
+        if (!(task.input instanceof Serializable input))
+            throw new NotSerializableException("Input of " + task.id() + " is not Serializable");
+        for (int resubmits = 0; ; resubmits++) {
+            // Before picking a worker, because if (e.g. a field of) the input can't be serialized,
+            // then only this task fails; the worker is fine
+            var call = calls.incrementAndGet();
+            var message = Endpoint.serialize(new Execute(call, task.getClass().getName(), input));
+            var worker = pick();
+            var result = new CompletableFuture<Object>();
+            worker.calls.put(call, result);
+            try {
+                worker.endpoint.send(message);
+                @SuppressWarnings("unchecked")
+                var output = (O) result.get();
+                return output;
+
+            } catch (InterruptedException e) {
+                worker.cancel(call);
+                throw e;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof WorkerDiedException died && resubmits < maxResubmits) {
+                    LOG.log(Level.WARNING, "Resubmitting " + task.id() + " because of", died);
+                    continue;
+                }
+                if (e.getCause() instanceof Exception cause) throw cause;
+                if (e.getCause() instanceof Error error) throw error;
+                throw e;
+            } catch (IOException e) {
+                // Could not even send it; the worker is broken, but the task never ran
+                worker.died(e);
+                if (resubmits < maxResubmits) continue;
+                throw e;
+            } finally {
+                worker.calls.remove(call);
+            }
+        }
+    }
+
+    /** Stops all workers; tasks which are still running on them fail. */
+    @Override
+    public void close() {
+        closed = true;
+        heartbeats.close();
+        List<Connection> current;
+        synchronized (this) {
+            current = List.copyOf(workers);
+            workers.clear();
+            notifyAll();
+        }
+        for (var worker : current) worker.close();
+        try {
+            server.close();
+            Files.deleteIfExists(directory.resolve("pool.socket"));
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Failed to clean up " + directory, e);
+        }
+    }
+
+    private static final class WorkerDiedException extends IOException {
+        @Serial private static final long serialVersionUID = 1L;
+
+        WorkerDiedException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private final class Connection {
+        private final Process process;
+        private final Endpoint endpoint;
+        private final Map<Long, CompletableFuture<Object>> calls = new ConcurrentHashMap<>();
+        private volatile long lastHeartbeat = System.nanoTime();
+        private volatile boolean dead;
+
+        Connection(Process process, Endpoint endpoint) {
+            this.process = process;
+            this.endpoint = endpoint;
+        }
+
+        void receive() {
+            try {
+                while (true) {
+                    var message = endpoint.receive();
+                    lastHeartbeat = System.nanoTime();
+                    switch (message) {
+                        case Heartbeat heartbeat -> {}
+                        case Result result -> complete(result.call(), result.output(), null);
+                        case Failure failure -> complete(failure.call(), null, failure.failure());
+                        default -> throw new IOException("Unexpected message: " + message);
+                    }
+                }
+            } catch (IOException e) {
+                died(e);
+            }
+        }
+
+        private void complete(long call, Object output, /*TODO @Nullable*/ Throwable failure) {
+            var result = calls.get(call);
+            if (result == null) return; // e.g. cancelled
+            if (failure != null) result.completeExceptionally(failure);
+            else result.complete(output);
+        }
+
+        void cancel(long call) {
+            calls.remove(call);
+            try {
+                endpoint.send(new Cancel(call));
+            } catch (IOException e) {
+                LOG.log(Level.FINE, "Failed to cancel call " + call + " on " + this, e);
+            }
+        }
+
+        void died(Throwable cause) {
+            synchronized (this) {
+                if (dead) return;
+                dead = true;
+            }
+            synchronized (WorkerPool.this) {
+                workers.remove(this);
+                if (!closed) replacing++;
+            }
+            if (closed) return;
+            LOG.log(Level.WARNING, "Worker died: " + this, cause);
+            var died = new WorkerDiedException("Worker died: " + this, cause);
+            for (var result : calls.values()) result.completeExceptionally(died);
+            close();
+
+            Thread.ofVirtual()
+                    .name("WorkerPool-Replacement")
+                    .start(
+                            () -> {
+                                IOException failure = null;
+                                try {
+                                    start();
+                                } catch (IOException e) {
+                                    LOG.log(Level.SEVERE, "Failed to replace " + this, e);
+                                    failure = e;
+                                }
+                                synchronized (WorkerPool.this) {
+                                    replacing--;
+                                    if (failure != null) replaceFailure = failure;
+                                    WorkerPool.this.notifyAll();
+                                }
+                            });
+        }
+
+        void close() {
+            dead = true;
+            try {
+                endpoint.close(); // makes the worker exit
+            } catch (IOException e) {
+                LOG.log(Level.FINE, "Failed to close " + this, e);
+            }
+            try {
+                if (!process.waitFor(1, SECONDS))
+                    process.destroyForcibly().waitFor();
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+            for (var result : calls.values())
+                result.completeExceptionally(new IllegalStateException("WorkerPool closed"));
+        }
+
+        @Override
+        public String toString() {
+            return "Worker{pid=" + process.pid() + ", running=" + calls.size() + "}";
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package dev.enola.be.task;
+
+import static ch.vorburger.test.Assert.assertTrue;
+
+import dev.enola.be.task.test.ImmediateTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class WorkerPoolTest {
+
+    public static void main(String[] args) throws Exception {
+        // Same JVM arguments, e.g. --enable-preview
+        var jvmArgs = ManagementFactory.getRuntimeMXBean().getInputArguments();
+        try (var pool =
+                new WorkerPool.Builder()
+                        .workers(2)
+                        .jvmArgs(jvmArgs)
+                        .heartbeat(Duration.ofMillis(100), Duration.ofSeconds(5))
+                        .build()) {
+            try (var executor = new TaskExecutor.Builder().workers(pool).build()) {
+                testExecutesInWorker(executor, pool);
+                testNotRemotable(executor);
+                testFailure(executor);
+                testInputNotSerializable(executor, pool);
+                testCancel(executor);
+                testWorkerDies(executor, pool);
+            }
+        }
+        testNoWorkersLeft(jvmArgs);
+    }
+
+    public static class PidTask extends Task<String, String> implements Remotable {
+        public PidTask(String input) {
+            super(input);
+        }
+
+        @Override
+        protected String execute() {
+            return input + "@" + ProcessHandle.current().pid();
+        }
+    }
+
+    public static class FailingRemoteTask extends Task<String, String> implements Remotable {
+        public FailingRemoteTask(String input) {
+            super(input);
+        }
+
+        @Override
+        protected String execute() throws IOException {
+            throw new IOException("Remote failure: " + input);
+        }
+    }
+
+    public static class SleepingRemoteTask extends TaskWithoutInputOutput implements Remotable {
+        @Override
+        protected void executeIt() throws InterruptedException {
+            Thread.sleep(Duration.ofMinutes(1));
+        }
+    }
+
+    /** Kills its worker, unless the marker file exists, which it creates first. */
+    public static class ExitOnceTask extends Task<String, String> implements Remotable {
+        public ExitOnceTask(String input) {
+            super(input);
+        }
+
+        @Override
+        protected String execute() throws IOException {
+            var marker = Path.of(input);
+            if (Files.exists(marker)) return "Resubmitted";
+            Files.createFile(marker);
+            Runtime.getRuntime().halt(1);
+            return "Unreachable";
+        }
+    }
+
+    private static void testExecutesInWorker(TaskExecutor executor, WorkerPool pool) {
+        var output = executor.await(new PidTask("hello"));
+        var pid = Long.parseLong(output.substring("hello@".length()));
+        assertTrue(pid != ProcessHandle.current().pid(), "Should run in worker: " + output);
+        assertTrue(pool.pids().contains(pid), "Should be a worker: " + pid + " " + pool.pids());
+    }
+
+    private static void testNotRemotable(TaskExecutor executor) {
+        var output = executor.await(new ImmediateTask("local"));
+        assertTrue(output.equals("Result: local"), output);
+    }
+
+    private static void testFailure(TaskExecutor executor) {
+        var task = new FailingRemoteTask("oops");
+        try {
+            executor.await(task);
+            assertTrue(false, "Should have thrown an exception");
+        } catch (UncheckedTaskAwaitException e) {
+            // Expected
+        }
+        assertTrue(task.status() == Status.FAILED, "Should be FAILED: " + task);
+        var failure = task.failure().get();
+        assertTrue(failure instanceof IOException, "Should be remote failure: " + failure);
+        assertTrue(failure.getMessage().equals("Remote failure: oops"), failure.getMessage());
+    }
+
+    // Serializable, but with a field which is not
+    public record Input(Object value) implements Serializable {}
+
+    public static class NestedInputTask extends Task<Input, String> implements Remotable {
+        public NestedInputTask(Input input) {
+            super(input);
+        }
+
+        @Override
+        protected String execute() {
+            return "Unreachable";
+        }
+    }
+
+    private static void testInputNotSerializable(TaskExecutor executor, WorkerPool pool) {
+        var pids = pool.pids();
+        var task = new NestedInputTask(new Input(new Object()));
+        try {
+            executor.await(task);
+            assertTrue(false, "Should have thrown an exception");
+        } catch (UncheckedTaskAwaitException e) {
+            // Expected
+        }
+        var failure = task.failure().get();
+        assertTrue(failure instanceof NotSerializableException, "Failure: " + failure);
+        assertTrue(pool.pids().equals(pids), "Workers should live: " + pids + " " + pool.pids());
+    }
+
+    private static void testCancel(TaskExecutor executor) throws Exception {
+        var task = new SleepingRemoteTask();
+        executor.async(task);
+        while (task.startedAt().isEmpty()) Thread.sleep(1);
+        Thread.sleep(100); // so that it is actually running in the worker
+        var done = new CountDownLatch(1);
+        task.whenDone(done::countDown);
+        task.cancel();
+        assertTrue(done.await(5, TimeUnit.SECONDS), "Should be done: " + task);
+        assertTrue(task.status() == Status.CANCELLED, "Should be CANCELLED: " + task);
+        assertTrue(executor.await(new PidTask("after")).startsWith("after@"), "Still usable");
+    }
+
+    private static void testWorkerDies(TaskExecutor executor, WorkerPool pool) throws Exception {
+        var before = pool.pids();
+        var marker = Files.createTempDirectory("WorkerPoolTest").resolve("marker");
+        var output = executor.await(new ExitOnceTask(marker.toString()));
+        assertTrue(output.equals("Resubmitted"), "Should be resubmitted: " + output);
+
+        // The worker which died is replaced
+        var deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (pool.pids().size() < 2 || pool.pids().equals(before)) {
+            assertTrue(System.nanoTime() < deadline, "Not replaced: " + pool.pids());
+            Thread.sleep(10);
+        }
+        Files.delete(marker);
+        Files.delete(marker.getParent());
+    }
+
+    // Workers run from a copy of the classpath, which is deleted, so that replacements can't start
+    private static void testNoWorkersLeft(List<String> jvmArgs) throws Exception {
+        var copy = Files.createTempDirectory("WorkerPoolTest");
+        var classpath = new ArrayList<String>();
+        for (var entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            var source = Path.of(entry);
+            if (!Files.isDirectory(source)) continue;
+            var target = copy.resolve(Integer.toString(classpath.size()));
+            copyRecursively(source, target);
+            classpath.add(target.toString());
+        }
+        try (var pool =
+                        new WorkerPool.Builder()
+                                .workers(1)
+                                .jvmArgs(jvmArgs)
+                                .classpath(String.join(File.pathSeparator, classpath))
+                                .build();
+                var executor = new TaskExecutor.Builder().workers(pool).build()) {
+            assertTrue(executor.await(new PidTask("before")).startsWith("before@"), "Runs");
+            deleteRecursively(copy);
+            for (var pid : pool.pids()) ProcessHandle.of(pid).ifPresent(ProcessHandle::destroy);
+            var deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+            while (!pool.pids().isEmpty()) {
+                assertTrue(System.nanoTime() < deadline, "Not dead: " + pool.pids());
+                Thread.sleep(10);
+            }
+
+            var task = new PidTask("after");
+            executor.async(task);
+            var done = new CountDownLatch(1);
+            task.whenDone(done::countDown);
+            assertTrue(done.await(60, TimeUnit.SECONDS), "Should not hang: " + task);
+            assertTrue(task.status() == Status.FAILED, "Should be FAILED: " + task);
+            var failure = task.failure().get();
+            assertTrue(failure.getMessage().equals("No workers left"), "Failure: " + failure);
+        }
+    }
+
+    private static void copyRecursively(Path source, Path target) throws IOException {
+        try (var paths = Files.walk(source)) {
+            for (var path : (Iterable<Path>) paths::iterator)
+                Files.copy(path, target.resolve(source.relativize(path).toString()));
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (var paths = Files.walk(directory)) {
+            for (var path : paths.sorted(Comparator.reverseOrder()).toList()) Files.delete(path);
+        }
+    }
+}
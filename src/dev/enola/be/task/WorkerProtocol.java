@@ -0,0 +1,107 @@
+package dev.enola.be.task;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Messages between a {@link WorkerPool} and its {@link Worker}s, over a Unix domain socket.
+ *
+ * <p>Each message is Java serialized on its own, and sent prefixed with its length; so a message
+ * which cannot be serialized (e.g. an output or exception which is not {@link Serializable}) fails
+ * before anything is sent, and does not corrupt the stream.
+ */
+final class WorkerProtocol {
+
+    sealed interface Message extends Serializable {}
+
+    /** Worker to pool, first message after connecting. */
+    record Hello(long pid) implements Message {}
+
+    /** Pool to worker: Run a new instance of the task class with that input. */
+    record Execute(long call, String type, Serializable input) implements Message {}
+
+    /** Pool to worker: Interrupt the call, if it is still running. */
+    record Cancel(long call) implements Message {}
+
+    /** Worker to pool, periodically; proves that the worker is alive and not hung. */
+    record Heartbeat() implements Message {}
+
+    /** Worker to pool: The call completed. */
+    record Result(long call, Serializable output) implements Message {}
+
+    /** Worker to pool: The call failed. */
+    record Failure(long call, Throwable failure) implements Message {}
+
+    static final class Endpoint implements Closeable {
+        private static final int MAX_MESSAGE_BYTES = 256 * 1024 * 1024;
+
+        private final SocketChannel channel;
+        private final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+
+        Endpoint(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /** Sends a message; this can be called by several threads concurrently. */
+        void send(Message message) throws IOException {
+            send(serialize(message));
+        }
+
+        /**
+         * Serializes a message for {@link #send(ByteBuffer)}; this fails (with e.g. a {@link
+         * java.io.NotSerializableException}) only because of the message, not the connection.
+         */
+        static ByteBuffer serialize(Message message) throws IOException {
+            var bytes = new ByteArrayOutputStream();
+            try (var out = new ObjectOutputStream(bytes)) {
+                out.writeObject(message);
+            }
+            var buffer = ByteBuffer.allocate(Integer.BYTES + bytes.size());
+            return buffer.putInt(bytes.size()).put(bytes.toByteArray()).flip();
+        }
+
+        /** Sends a {@link #serialize(Message)}d message; this can be called concurrently. */
+        void send(ByteBuffer buffer) throws IOException {
+            synchronized (this) {
+                while (buffer.hasRemaining()) channel.write(buffer);
+            }
+        }
+
+        /** Receives the next message; this must only be called by one thread (at a time). */
+        Message receive() throws IOException {
+            header.clear();
+            readFully(header);
+            var length = header.flip().getInt();
+            if (length < 0 || length > MAX_MESSAGE_BYTES)
+                throw new IOException("Invalid message length: " + length);
+            var body = ByteBuffer.allocate(length);
+            readFully(body);
+            try (var in = new ObjectInputStream(new ByteArrayInputStream(body.array()))) {
+                return (Message) in.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Cannot deserialize message", e);
+            }
+        }
+
+        private void readFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) throw new EOFException("Connection closed");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private WorkerProtocol() {}
+}
@@ -1,7 +1,9 @@
 package dev.enola.be.task.demo;
 
+import dev.enola.be.io.ChannelLineWriter;
 import dev.enola.be.io.LineWriters;
 import dev.enola.be.io.NonBlockingLineWriter;
+import dev.enola.be.task.Resumable;
 import dev.enola.be.task.Task;
 import dev.enola.be.task.TaskExecutor;
 import dev.enola.be.task.demo.LongIncrementingTask.Input;
@@ -11,34 +13,57 @@ import dev.enola.common.function.CheckedConsumer;
 import dev.enola.common.log.JulConfigurer;
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.time.Duration;
 import java.time.Instant;
 
-public class LongIncrementingTask extends Task<Input, Output> {
+public class LongIncrementingTask extends Task<Input, Output> implements Resumable<Long> {
 
-    record Input(long max, Duration sleep) {}
+    record Input(long max, Duration sleep) implements Serializable {}
 
-    record Output(long result) {}
+    record Output(long result) implements Serializable {}
+
+    private static final long CHECKPOINT_INTERVAL = 100_000;
 
     private final CheckedConsumer<Long, IOException> progressConsumer;
+    private long start;
 
     public LongIncrementingTask(Input input, CheckedConsumer<Long, IOException> progressConsumer) {
         super(input);
         this.progressConsumer = progressConsumer;
     }
 
+    // For TaskExecutor.resume()
+    public LongIncrementingTask(Input input) {
+        this(input, LineWriters.NOOP::println);
+    }
+
+    @Override
+    public void resume(Long next) {
+        this.start = next;
+    }
+
+    // Without sleeping, it just keeps a core busy
+    @Override
+    public boolean cpuBound() {
+        return input.sleep.isZero();
+    }
+
     @Override
     protected Output execute() throws Exception {
-        for (long i = 0; i < input.max; i++) {
+        var progress = progress();
+        progress.total(input.max);
+        progress.add(start);
+        for (long i = start; i < input.max; i++) {
+            if (i % CHECKPOINT_INTERVAL == 0 && i > start) checkpoint(i);
             progressConsumer.accept(i);
+            progress.increment();
             // Do *NOT* Thread.yield(); that makes it really horribly slow, by like a factor x100!
             if (Thread.currentThread().isInterrupted())
                 throw new InterruptedException("Task was interrupted");
             Threads.sleep(input.sleep);
         }
 
-        // TODO Report % progress
-
         return new Output(input.max);
     }
 
@@ -66,15 +91,24 @@ public class LongIncrementingTask extends Task<Input, Output> {
         var sleep = Duration.ofMillis(0);
 
         var input = new Input(max, sleep);
-        var pumperTask = new NonBlockingLineWriter(13, LineWriters.SYSTEM_OUT);
+        var pumperTask = new NonBlockingLineWriter(13, ChannelLineWriter.stdout());
         var printingTask = new LongIncrementingTask(input, pumperTask::println);
         var silentTask = new LongIncrementingTask(input, LineWriters.NOOP::println);
 
         try (var executor = new TaskExecutor()) {
+            executor.watchProgress(
+                    Duration.ofSeconds(1), samples -> samples.forEach(System.err::println));
             executor.async(pumperTask);
             executor.async(silentTask);
 
             executor.await(printingTask);
+            System.err.println(
+                    "Printed "
+                            + pumperTask.offered()
+                            + " lines, wrote "
+                            + pumperTask.written()
+                            + ", dropped "
+                            + pumperTask.dropped());
             silentTask.await();
 
             simpleLoop(max, sleep);
@@ -0,0 +1,35 @@
+package dev.enola.be.task.test;
+
+import dev.enola.be.task.Task;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class DependentTask extends Task<String, String> {
+
+    private final Set<Task<?, ?>> dependencies = new LinkedHashSet<>();
+
+    public DependentTask(String input, Task<?, ?>... dependencies) {
+        super(input);
+        Collections.addAll(this.dependencies, dependencies);
+    }
+
+    public DependentTask dependOn(Task<?, ?> dependency) {
+        dependencies.add(dependency);
+        return this;
+    }
+
+    @Override
+    public Set<Task<?, ?>> dependencies() {
+        return dependencies;
+    }
+
+    @Override
+    protected String execute() throws Exception {
+        var outputs = new TreeSet<String>();
+        for (var dependency : dependencies) outputs.add(dependency.output().get().toString());
+        return input + outputs;
+    }
+}
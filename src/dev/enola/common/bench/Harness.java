@@ -0,0 +1,203 @@
+package dev.enola.common.bench;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Minimal micro-benchmark harness, in the spirit of <a
+ * href="https://github.com/openjdk/jmh">JMH</a> (which this project cannot depend on).
+ *
+ * <p>An {@link Operation} is first run for a warm-up period (to let the JIT compile it), and then
+ * for a measurement period, on each of a number of (platform) threads at the same time. Results
+ * are printed as a table of operations per second (over all threads) and nanoseconds per
+ * operation (per thread).
+ *
+ * <p>Command line arguments are <code>[--quick] [filter]</code>: <code>--quick</code> is a smoke
+ * test mode with very short periods and few threads, which is only useful to check that the
+ * benchmarks still work, not for their numbers; <code>filter</code> only runs benchmarks whose name
+ * contains it.
+ */
+public final class Harness {
+
+    /** Benchmarked code. */
+    @FunctionalInterface
+    public interface Operation {
+
+        /**
+         * Runs the benchmarked code once (or a batch of it).
+         *
+         * @return number of operations performed, typically 1
+         */
+        int run() throws Exception;
+    }
+
+    /** Result of a benchmark run. */
+    public record Result(String name, int threads, long operations, long nanos) {
+
+        public double operationsPerSecond() {
+            return operations * 1e9 / nanos;
+        }
+
+        /** Average time (per thread) of an operation. */
+        public double nanosPerOperation() {
+            return (double) nanos * threads / operations;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    Locale.ROOT,
+                    "%-48s %7d %16.1f %12.1f",
+                    name,
+                    threads,
+                    operationsPerSecond(),
+                    nanosPerOperation());
+        }
+    }
+
+    // Sink for results which the JIT would otherwise eliminate as dead code
+    private static volatile int sink;
+
+    private final boolean quick;
+    private final /*TODO @Nullable*/ String filter;
+    private final Duration warmup;
+    private final Duration measurement;
+    private final List<Integer> threads;
+    private final PrintStream out;
+    private final List<Result> results = new ArrayList<>();
+    private boolean printedHeader;
+
+    public Harness(String[] args) {
+        this(args, System.out);
+    }
+
+    public Harness(String[] args, PrintStream out) {
+        var quick = false;
+        String filter = null;
+        for (var arg : args) {
+            if (arg.equals("--quick")) quick = true;
+            else if (arg.startsWith("-")) throw new IllegalArgumentException("Unknown: " + arg);
+            else filter = arg;
+        }
+        this.quick = quick;
+        this.filter = filter;
+        this.out = out;
+        if (quick) {
+            warmup = Duration.ofMillis(20);
+            measurement = Duration.ofMillis(50);
+            threads = List.of(1, 2);
+        } else {
+            warmup = Duration.ofSeconds(2);
+            measurement = Duration.ofSeconds(5);
+            var cpus = Runtime.getRuntime().availableProcessors();
+            threads = cpus > 4 ? List.of(1, 4, cpus) : cpus > 1 ? List.of(1, cpus) : List.of(1);
+        }
+    }
+
+    /** Whether this is a smoke test run, see class documentation. */
+    public boolean quick() {
+        return quick;
+    }
+
+    /** Thread counts at which benchmarks should be run. */
+    public List<Integer> threads() {
+        return threads;
+    }
+
+    /** Whether the benchmark with the given name should run at all, given the filter argument. */
+    public boolean includes(String name) {
+        return filter == null || name.contains(filter);
+    }
+
+    /** Results of all benchmarks run so far. */
+    public List<Result> results() {
+        return List.copyOf(results);
+    }
+
+    /**
+     * Keeps a value "alive", so that the JIT cannot eliminate the code which computed it.
+     *
+     * <p>This is much cheaper than e.g. writing to a volatile field each time.
+     */
+    public static void consume(int value) {
+        if (value == 0x2545F491) sink = value;
+    }
+
+    /**
+     * Runs an operation on the given number of threads, and prints and returns the result.
+     *
+     * @return result, or null if excluded by the filter
+     */
+    public /*TODO @Nullable*/ Result run(String name, int threads, Operation operation)
+            throws Exception {
+        if (!includes(name)) return null;
+
+        var barrier = new CyclicBarrier(threads);
+        var operations = new AtomicLong();
+        var nanos = new AtomicLong();
+        var failure = new AtomicReference<Throwable>();
+        Runnable worker =
+                () -> {
+                    try {
+                        loop(operation, warmup); // results discarded
+                        barrier.await();
+                        var start = System.nanoTime();
+                        operations.addAndGet(loop(operation, measurement));
+                        nanos.accumulateAndGet(System.nanoTime() - start, Math::max);
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                        barrier.reset(); // makes the other workers fail fast, too
+                    }
+                };
+        var workers = new ArrayList<Thread>(threads);
+        for (int i = 0; i < threads; i++)
+            workers.add(Thread.ofPlatform().name(name + "-" + i).start(worker));
+        for (var thread : workers) thread.join();
+        if (failure.get() != null) throw new Exception(name + " failed", failure.get());
+
+        return record(new Result(name, threads, operations.get(), nanos.get()));
+    }
+
+    /** Runs an operation at each of the {@link #threads()} counts. */
+    public void run(String name, Operation operation) throws Exception {
+        for (var threads : threads()) run(name, threads, operation);
+    }
+
+    /** Prints and returns a result which was measured by the caller. */
+    public Result record(Result result) {
+        if (!printedHeader) {
+            out.println(
+                    String.format(
+                            Locale.ROOT,
+                            "%-48s %7s %16s %12s",
+                            "Benchmark",
+                            "Threads",
+                            "ops/s",
+                            "ns/op"));
+            printedHeader = true;
+        }
+        out.println(result);
+        results.add(result);
+        return result;
+    }
+
+    private static long loop(Operation operation, Duration duration) throws Exception {
+        var end = System.nanoTime() + duration.toNanos();
+        long operations = 0;
+        // Checking the time costs ~20ns, so only do it every so often for very fast operations
+        int batch = 1;
+        while (true) {
+            var start = System.nanoTime();
+            for (int i = 0; i < batch; i++) operations += operation.run();
+            var now = System.nanoTime();
+            if (now - end >= 0) return operations;
+            if (now - start < 10_000 && batch < 1 << 20) batch <<= 1;
+        }
+    }
+}
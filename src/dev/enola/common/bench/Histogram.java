@@ -0,0 +1,78 @@
+package dev.enola.common.bench;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe histogram of (positive) latencies in nanoseconds, with constant memory.
+ *
+ * <p>Values are counted in buckets of powers of 2, each split into 8 linear sub-buckets, so
+ * percentiles are accurate to within 12.5%; which is good enough to see how latency is
+ * distributed, without the cost of recording every sample.
+ */
+public final class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+
+    public void record(long nanos) {
+        counts.incrementAndGet(bucket(Math.max(0, nanos)));
+    }
+
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) count += counts.get(i);
+        return count;
+    }
+
+    /**
+     * Latency below which the given percentage of all recorded values are.
+     *
+     * @param percentile e.g. 50 for the median, or 99.9
+     * @return upper bound of the bucket of that percentile, or {@link Duration#ZERO} if empty
+     */
+    public Duration percentile(double percentile) {
+        var count = count();
+        if (count == 0) return Duration.ZERO;
+        var rank = (long) Math.ceil(count * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank && seen > 0) return Duration.ofNanos(upperBound(i));
+        }
+        return Duration.ofNanos(upperBound(counts.length() - 1));
+    }
+
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        var exponent = 63 - Long.numberOfLeadingZeros(value); // >= SUB_BUCKET_BITS
+        var subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        var exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        var subBucket = bucket % SUB_BUCKETS;
+        var shift = exponent - SUB_BUCKET_BITS;
+        if (exponent >= 62) return Long.MAX_VALUE;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "n="
+                + count()
+                + " p50="
+                + percentile(50).toNanos()
+                + "ns p99="
+                + percentile(99).toNanos()
+                + "ns p99.9="
+                + percentile(99.9).toNanos()
+                + "ns max="
+                + percentile(100).toNanos()
+                + "ns";
+    }
+}
@@ -0,0 +1,210 @@
+package dev.enola.common.concurrent;
+
+import static dev.enola.common.concurrent.LoggingThreadUncaughtExceptionHandler.toLogger;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link Flow.Publisher} which never blocks (or slows down) the publishing thread, for items which
+ * are updates of the state of something identified by a key; e.g. status changes of tasks.
+ *
+ * <p>Each subscriber has its own bounded buffer of items which were published but not yet
+ * delivered to it, because it did not {@link Flow.Subscription#request(long)} them yet. If an item
+ * is published while an item with the same key is still buffered, it replaces that (older) one, at
+ * its position; so a slow subscriber gets only the latest state of each key, instead of falling
+ * further and further behind. If the buffer is full nevertheless, i.e. has more distinct keys than
+ * its size, then the oldest item is dropped (and a warning is logged, once per subscriber).
+ *
+ * <p>Items are delivered on a virtual thread per subscriber (started whenever there are items and
+ * demand, and ending when there are not), so subscribers cannot block each other.
+ */
+public final class CoalescingPublisher<K, T> implements Flow.Publisher<T> {
+
+    private static final Logger LOG = Logger.getLogger(CoalescingPublisher.class.getName());
+
+    private final Function<? super T, ? extends K> key;
+    private final int bufferSize;
+    private final ThreadFactory threadFactory;
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param name prefix of the names of the threads which deliver items to subscribers
+     * @param key function which returns the key of an item, for coalescing
+     * @param bufferSize maximum number of items buffered per subscriber
+     */
+    public CoalescingPublisher(String name, Function<? super T, ? extends K> key, int bufferSize) {
+        if (bufferSize < 1) throw new IllegalArgumentException("bufferSize must be positive");
+        this.key = requireNonNull(key, "key");
+        this.bufferSize = bufferSize;
+        this.threadFactory =
+                Thread.ofVirtual().name(name, 1).uncaughtExceptionHandler(toLogger(LOG)).factory();
+    }
+
+    /**
+     * Whether there are any subscribers; publishers can check this to avoid even creating items
+     * which nobody would receive.
+     */
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    /** Offers the item to all current subscribers; does nothing once {@link #close()}d. */
+    public void publish(T item) {
+        requireNonNull(item, "item");
+        if (closed) return;
+        for (var subscription : subscriptions) subscription.offer(item);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        var subscription = new Subscription(requireNonNull(subscriber, "subscriber"));
+        subscriptions.add(subscription);
+        subscriber.onSubscribe(subscription);
+        // Only now, so that no other signal can be delivered concurrently with onSubscribe()
+        subscription.subscribed();
+        if (closed) subscription.close();
+    }
+
+    /**
+     * Completes all subscribers, after they received the items still buffered for them. Nothing
+     * can be published anymore; and subscribers which subscribe later are completed immediately.
+     */
+    public void close() {
+        closed = true;
+        for (var subscription : subscriptions) subscription.close();
+    }
+
+    private final class Subscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super T> subscriber;
+
+        // All of the following are guarded by this
+        private final LinkedHashMap<K, T> buffer = new LinkedHashMap<>();
+        private long demand;
+        private boolean subscribed;
+        private boolean delivering;
+        private boolean cancelled;
+        private boolean closed;
+        private long dropped;
+        private /*TODO @Nullable*/ Throwable error;
+
+        Subscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void offer(T item) {
+            synchronized (this) {
+                if (cancelled) return;
+                // LinkedHashMap keeps the position of an existing key, i.e. the item is coalesced
+                buffer.put(key.apply(item), item);
+                if (buffer.size() > bufferSize) {
+                    var oldest = buffer.keySet().iterator();
+                    oldest.next();
+                    oldest.remove();
+                    if (dropped++ == 0)
+                        LOG.warning("Buffer full, dropping items for subscriber " + subscriber);
+                }
+                if (!deliver()) return;
+            }
+            threadFactory.newThread(this).start();
+        }
+
+        void subscribed() {
+            synchronized (this) {
+                subscribed = true;
+                if (!deliver()) return;
+            }
+            threadFactory.newThread(this).start();
+        }
+
+        void close() {
+            synchronized (this) {
+                closed = true;
+                if (!deliver()) return;
+            }
+            threadFactory.newThread(this).start();
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (cancelled) return;
+                if (n <= 0) error = new IllegalArgumentException("Non-positive request: " + n);
+                else demand = demand + n < 0 ? Long.MAX_VALUE : demand + n; // saturating
+                if (!deliver()) return;
+            }
+            threadFactory.newThread(this).start();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                buffer.clear();
+            }
+            subscriptions.remove(this);
+        }
+
+        // Whether the caller must start delivering; guarded by this
+        private boolean deliver() {
+            if (!subscribed || delivering || cancelled) return false;
+            if (error == null && (demand == 0 || buffer.isEmpty()) && !(closed && buffer.isEmpty()))
+                return false;
+            delivering = true;
+            return true;
+        }
+
+        /** Delivers items until there are none, or no more demand; see {@link #deliver()}. */
+        @Override
+        public void run() {
+            while (true) {
+                T next = null;
+                Throwable failure = null;
+                synchronized (this) {
+                    if (cancelled) return;
+                    if (error != null) {
+                        failure = error;
+                        cancelled = true;
+                    } else if (demand > 0 && !buffer.isEmpty()) {
+                        var iterator = buffer.values().iterator();
+                        next = iterator.next();
+                        iterator.remove();
+                        if (demand != Long.MAX_VALUE) demand--;
+                    } else if (closed && buffer.isEmpty()) {
+                        cancelled = true;
+                    } else {
+                        delivering = false;
+                        return;
+                    }
+                }
+
+                try {
+                    if (next != null) {
+                        subscriber.onNext(next);
+                        continue;
+                    }
+                    subscriptions.remove(this);
+                    if (failure != null) subscriber.onError(failure);
+                    else subscriber.onComplete();
+                    return;
+
+                } catch (Throwable t) {
+                    // Subscribers must not throw; if one does, it cannot expect any more items
+                    cancel();
+                    LOG.log(Level.WARNING, "Subscriber failed, cancelled: " + subscriber, t);
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package dev.enola.common.concurrent;
+
+import static ch.vorburger.test.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class CoalescingPublisherTest {
+
+    public static void main(String[] args) throws Exception {
+        testDelivers();
+        testDemand();
+        testCoalesces();
+        testBufferFull();
+        testCancel();
+        testNonPositiveRequest();
+        testSubscribeAfterClose();
+    }
+
+    private record Item(String key, int value) {}
+
+    private static class TestSubscriber implements Flow.Subscriber<Item> {
+        final LinkedBlockingQueue<Item> items = new LinkedBlockingQueue<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        final long initialRequest;
+        volatile Flow.Subscription subscription;
+        volatile Throwable error;
+
+        TestSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) subscription.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(Item item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+
+        Item next() throws InterruptedException {
+            var item = items.poll(5, TimeUnit.SECONDS);
+            assertTrue(item != null, "No item received");
+            return item;
+        }
+
+        void awaitDone() throws InterruptedException {
+            assertTrue(done.await(5, TimeUnit.SECONDS), "Not completed");
+        }
+    }
+
+    private static CoalescingPublisher<String, Item> newPublisher(int bufferSize) {
+        return new CoalescingPublisher<>("CoalescingPublisherTest", Item::key, bufferSize);
+    }
+
+    private static void testDelivers() throws Exception {
+        var publisher = newPublisher(100);
+        assertTrue(!publisher.hasSubscribers(), "No subscribers yet");
+        var subscriber = new TestSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+        assertTrue(publisher.hasSubscribers(), "Should have a subscriber");
+        for (int i = 0; i < 100; i++) publisher.publish(new Item("k" + i, i));
+        for (int i = 0; i < 100; i++) {
+            var item = subscriber.next();
+            assertTrue(item.value() == i, "Out of order: " + item + " instead of " + i);
+        }
+        publisher.close();
+        subscriber.awaitDone();
+        assertTrue(subscriber.error == null, "Should complete normally: " + subscriber.error);
+        assertTrue(!publisher.hasSubscribers(), "Completed subscriber should be removed");
+    }
+
+    private static void testDemand() throws Exception {
+        var publisher = newPublisher(10);
+        var subscriber = new TestSubscriber(0);
+        publisher.subscribe(subscriber);
+        publisher.publish(new Item("a", 1));
+        publisher.publish(new Item("b", 2));
+        Thread.sleep(20);
+        assertTrue(subscriber.items.isEmpty(), "Nothing was requested: " + subscriber.items);
+
+        subscriber.subscription.request(1);
+        assertTrue(subscriber.next().key().equals("a"), "Should get a");
+        Thread.sleep(20);
+        assertTrue(subscriber.items.isEmpty(), "Only 1 was requested: " + subscriber.items);
+
+        // Completion waits until the buffered items were requested and delivered
+        publisher.close();
+        Thread.sleep(20);
+        assertTrue(subscriber.done.getCount() == 1, "Should not complete yet");
+        subscriber.subscription.request(1);
+        assertTrue(subscriber.next().key().equals("b"), "Should get b");
+        subscriber.awaitDone();
+    }
+
+    private static void testCoalesces() throws Exception {
+        var publisher = newPublisher(10);
+        var subscriber = new TestSubscriber(0);
+        publisher.subscribe(subscriber);
+        publisher.publish(new Item("a", 1));
+        publisher.publish(new Item("b", 1));
+        publisher.publish(new Item("a", 2));
+        publisher.publish(new Item("a", 3));
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        // The latest "a", but at the position of the first one
+        assertTrue(subscriber.next().equals(new Item("a", 3)), "Should coalesce a");
+        assertTrue(subscriber.next().equals(new Item("b", 1)), "Should get b");
+        publisher.close();
+        subscriber.awaitDone();
+        assertTrue(subscriber.items.isEmpty(), "Should be coalesced: " + subscriber.items);
+    }
+
+    private static void testBufferFull() throws Exception {
+        var publisher = newPublisher(2);
+        var subscriber = new TestSubscriber(0);
+        publisher.subscribe(subscriber);
+        for (var key : List.of("a", "b", "c")) publisher.publish(new Item(key, 1));
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertTrue(subscriber.next().key().equals("b"), "Oldest should be dropped");
+        assertTrue(subscriber.next().key().equals("c"), "Should get c");
+        publisher.close();
+        subscriber.awaitDone();
+    }
+
+    private static void testCancel() throws Exception {
+        var publisher = newPublisher(10);
+        var subscriber = new TestSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+        subscriber.subscription.cancel();
+        assertTrue(!publisher.hasSubscribers(), "Cancelled subscriber should be removed");
+        publisher.publish(new Item("a", 1));
+        publisher.close();
+        Thread.sleep(20);
+        assertTrue(subscriber.items.isEmpty(), "Cancelled: " + subscriber.items);
+        assertTrue(subscriber.done.getCount() == 1, "Cancelled should not be completed");
+    }
+
+    private static void testNonPositiveRequest() throws Exception {
+        var publisher = newPublisher(10);
+        var subscriber = new TestSubscriber(0);
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(0);
+        subscriber.awaitDone();
+        var error = subscriber.error;
+        assertTrue(error instanceof IllegalArgumentException, "Should fail (§3.9): " + error);
+        assertTrue(!publisher.hasSubscribers(), "Failed subscriber should be removed");
+    }
+
+    private static void testSubscribeAfterClose() throws Exception {
+        var publisher = newPublisher(10);
+        publisher.close();
+        publisher.publish(new Item("ignored", 1));
+        var subscriber = new TestSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+        subscriber.awaitDone();
+        assertTrue(subscriber.items.isEmpty(), "Nothing to receive: " + subscriber.items);
+    }
+}
@@ -0,0 +1,237 @@
+package dev.enola.common.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Thread-safe map of primitive <code>long</code> keys to (non-null) values.
+ *
+ * <p>Unlike a <code>ConcurrentHashMap&lt;Long, V&gt;</code>, this does not box keys, and has no
+ * per-entry node objects; each entry just takes a slot in a <code>long[]</code> and an <code>
+ * Object[]</code>. The map is split into a fixed number of stripes, each an open addressing hash
+ * table with linear probing (and backward shift deletion, instead of tombstones) guarded by its
+ * own lock; so writers only contend if they access keys in the same stripe at the same time.
+ * {@link #get(long)} does not take the lock at all, unless a write to the same stripe interferes
+ * with its (optimistic) read.
+ *
+ * <p>{@link #values()} and {@link #forEach(Consumer)} are weakly consistent, like those of a
+ * <code>ConcurrentHashMap</code>: they lock one stripe at a time, not the whole map.
+ */
+public final class ConcurrentLongMap<V> {
+
+    private final Stripe<V>[] stripes;
+    private final int stripeShift;
+
+    public ConcurrentLongMap() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ConcurrentLongMap(int concurrency) {
+        if (concurrency < 1) throw new IllegalArgumentException("concurrency must be positive");
+        var size = 1;
+        while (size < concurrency) size <<= 1;
+        stripes = (Stripe<V>[]) new Stripe<?>[size];
+        for (int i = 0; i < size; i++) stripes[i] = new Stripe<>();
+        stripeShift = 64 - Integer.numberOfTrailingZeros(size);
+    }
+
+    public /*TODO @Nullable*/ V get(long key) {
+        var hash = hash(key);
+        return stripe(hash).get(key, hash);
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Associates the value with the key, unless it already has a value.
+     *
+     * @return the previous value, or null if there was none (and the value was put)
+     */
+    public /*TODO @Nullable*/ V putIfAbsent(long key, V value) {
+        if (value == null) throw new NullPointerException("value");
+        var hash = hash(key);
+        return stripe(hash).putIfAbsent(key, hash, value);
+    }
+
+    /** Removes the key, but only if it is (still) associated with the given value. */
+    public boolean remove(long key, V value) {
+        var hash = hash(key);
+        return stripe(hash).remove(key, hash, value);
+    }
+
+    public int size() {
+        var size = 0;
+        for (var stripe : stripes) size += stripe.size();
+        return size;
+    }
+
+    public boolean isEmpty() {
+        for (var stripe : stripes) if (stripe.size() > 0) return false;
+        return true;
+    }
+
+    /** Snapshot of all values. */
+    public List<V> values() {
+        var values = new ArrayList<V>(size());
+        forEach(values::add);
+        return values;
+    }
+
+    /**
+     * Invokes the action for each value. It is invoked while holding the lock of the stripe which
+     * contains the entry, so it must be fast, and must not access this map.
+     */
+    public void forEach(Consumer<? super V> action) {
+        for (var stripe : stripes) stripe.forEach(action);
+    }
+
+    private Stripe<V> stripe(long hash) {
+        // (Masked because with a single stripe, the shift is 64, which Java treats as 0)
+        return stripes[(int) (hash >>> stripeShift) & (stripes.length - 1)];
+    }
+
+    // MurmurHash3's fmix64; keys are typically sequential, which would otherwise cluster
+    private static long hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private static final class Stripe<V> {
+        private static final int INITIAL_CAPACITY = 16;
+
+        private final StampedLock lock = new StampedLock();
+
+        // Guarded by lock (but see get); a slot is empty if its value is null; capacity is a power
+        // of 2, and at most half full
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private Object[] values = new Object[INITIAL_CAPACITY];
+        private int size;
+
+        V get(long key, long hash) {
+            var stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                var value = find(key, hash);
+                if (lock.validate(stamp)) return value;
+            }
+            stamp = lock.readLock();
+            try {
+                return find(key, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        // Without the lock, a writer may be moving entries or replacing the arrays meanwhile; then
+        // the result is wrong (and discarded), but this must still neither throw nor loop forever
+        @SuppressWarnings("unchecked")
+        private V find(long key, long hash) {
+            var keys = this.keys;
+            var values = this.values;
+            var length = Math.min(keys.length, values.length);
+            var mask = length - 1;
+            int i = (int) hash & mask;
+            for (int n = 0; n < length; n++, i = (i + 1) & mask) {
+                var value = values[i];
+                if (value == null) return null;
+                if (keys[i] == key) return (V) value;
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        V putIfAbsent(long key, long hash, V value) {
+            var stamp = lock.writeLock();
+            try {
+                var mask = keys.length - 1;
+                int i = (int) hash & mask;
+                for (; values[i] != null; i = (i + 1) & mask)
+                    if (keys[i] == key) return (V) values[i];
+                keys[i] = key;
+                values[i] = value;
+                if (++size > keys.length / 2) resize();
+                return null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        boolean remove(long key, long hash, V value) {
+            var stamp = lock.writeLock();
+            try {
+                var mask = keys.length - 1;
+                int i = (int) hash & mask;
+                for (; values[i] != null; i = (i + 1) & mask) {
+                    if (keys[i] == key) {
+                        if (!values[i].equals(value)) return false;
+                        delete(i);
+                        return true;
+                    }
+                }
+                return false;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        // Moves back entries after the deleted one which would otherwise no longer be found
+        private void delete(int i) {
+            var mask = keys.length - 1;
+            values[i] = null;
+            size--;
+            for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+                var home = (int) hash(keys[j]) & mask;
+                // Entry j can move to the gap at i unless its home slot is cyclically in (i, j]
+                var stays = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+                if (!stays) {
+                    keys[i] = keys[j];
+                    values[i] = values[j];
+                    values[j] = null;
+                    i = j;
+                }
+            }
+        }
+
+        private void resize() {
+            var oldKeys = keys;
+            var oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new Object[oldKeys.length * 2];
+            var mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldValues[j] == null) continue;
+                int i = (int) hash(oldKeys[j]) & mask;
+                while (values[i] != null) i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+
+        int size() {
+            var stamp = lock.readLock();
+            try {
+                return size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void forEach(Consumer<? super V> action) {
+            var stamp = lock.readLock();
+            try {
+                for (var value : values) if (value != null) action.accept((V) value);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package dev.enola.common.concurrent;
+
+import static ch.vorburger.test.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ConcurrentLongMapTest {
+
+    public static void main(String[] args) throws Exception {
+        testPutGetRemove();
+        testAgainstHashMap();
+        testConcurrent();
+        testReadsWhileWriting();
+    }
+
+    private static void testPutGetRemove() {
+        var map = new ConcurrentLongMap<String>(1);
+        assertTrue(map.isEmpty(), "Should be empty");
+        assertTrue(map.putIfAbsent(42, "a") == null, "Should put");
+        assertTrue("a".equals(map.putIfAbsent(42, "b")), "Should not overwrite");
+        assertTrue("a".equals(map.get(42)), "Should get");
+        assertTrue(map.get(43) == null, "Should not get");
+        assertTrue(!map.remove(42, "b"), "Should not remove other value");
+        assertTrue(map.remove(42, "a"), "Should remove");
+        assertTrue(map.get(42) == null && map.isEmpty(), "Should be removed");
+    }
+
+    // Random keys in a small range, so that there are many collisions, resizes, and deletions
+    private static void testAgainstHashMap() {
+        var random = new Random(42);
+        var map = new ConcurrentLongMap<Long>(4);
+        var expected = new HashMap<Long, Long>();
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(1000);
+            if (random.nextBoolean()) {
+                var previous = map.putIfAbsent(key, key);
+                assertTrue(
+                        Objects.equals(previous, expected.putIfAbsent(key, key)),
+                        "putIfAbsent " + key);
+            } else {
+                var value = expected.get(key);
+                if (value != null) {
+                    assertTrue(map.remove(key, value), "remove " + key);
+                    expected.remove(key);
+                }
+            }
+            assertTrue(Objects.equals(map.get(key), expected.get(key)), "get " + key);
+        }
+        assertTrue(map.size() == expected.size(), "size");
+        for (var key : expected.keySet()) assertTrue(map.containsKey(key), "contains " + key);
+        assertTrue(map.values().size() == expected.size(), "values");
+    }
+
+    private static void testConcurrent() throws Exception {
+        var map = new ConcurrentLongMap<Long>();
+        var threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            long offset = t * 1_000_000L;
+            threads.add(
+                    Thread.ofPlatform()
+                            .start(
+                                    () -> {
+                                        for (long i = offset; i < offset + 100_000; i++)
+                                            map.putIfAbsent(i, i);
+                                        for (long i = offset; i < offset + 50_000; i++)
+                                            map.remove(i, i);
+                                    }));
+        }
+        for (var thread : threads) thread.join();
+        assertTrue(map.size() == 4 * 50_000, "size: " + map.size());
+    }
+
+    // A single stripe, so that reads constantly race with resizes and backward shifts
+    private static void testReadsWhileWriting() throws Exception {
+        var map = new ConcurrentLongMap<Long>(1);
+        for (long i = 0; i < 1000; i++) map.putIfAbsent(i, i);
+        var done = new AtomicBoolean();
+        var writer =
+                Thread.ofPlatform()
+                        .start(
+                                () -> {
+                                    for (int round = 0; round < 20; round++) {
+                                        for (long i = 1000; i < 20_000; i++) map.putIfAbsent(i, i);
+                                        for (long i = 1000; i < 20_000; i++) map.remove(i, i);
+                                    }
+                                    done.set(true);
+                                });
+        var misses = new AtomicLong();
+        var readers = new ArrayList<Thread>();
+        for (int t = 0; t < 2; t++) {
+            readers.add(
+                    Thread.ofPlatform()
+                            .start(
+                                    () -> {
+                                        var random = new Random();
+                                        while (!done.get()) {
+                                            long key = random.nextInt(1000);
+                                            if (!Long.valueOf(key).equals(map.get(key)))
+                                                misses.incrementAndGet();
+                                            if (map.get(-1 - key) != null) misses.incrementAndGet();
+                                        }
+                                    }));
+        }
+        writer.join();
+        for (var reader : readers) reader.join();
+        assertTrue(misses.get() == 0, "Wrong reads: " + misses);
+        assertTrue(map.size() == 1000, "size: " + map.size());
+    }
+}
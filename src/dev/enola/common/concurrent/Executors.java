@@ -3,8 +3,10 @@ package dev.enola.common.concurrent;
 import static dev.enola.common.concurrent.LoggingThreadUncaughtExceptionHandler.toLogger;
 
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 public final class Executors {
@@ -26,6 +28,24 @@ public final class Executors {
         return java.util.concurrent.Executors.newThreadPerTaskExecutor(tf);
     }
 
+    /**
+     * Work-stealing pool, with as many (platform) threads as there are cores; for CPU-bound work,
+     * unlike virtual threads, which are better for I/O-bound work. Tasks which a worker thread
+     * submits go to its own queue, and are run LIFO, so that fork/join-style subtasks run where
+     * their data is still in the CPU cache; idle workers steal from the others.
+     */
+    public static ForkJoinPool newWorkStealingPool(String namePrefix, Logger logger) {
+        var counter = new AtomicInteger();
+        ForkJoinPool.ForkJoinWorkerThreadFactory factory =
+                pool -> {
+                    var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setName(namePrefix + counter.incrementAndGet());
+                    return thread;
+                };
+        var parallelism = Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(parallelism, factory, toLogger(logger), false);
+    }
+
     private static ThreadFactory createThreadFactory(String namePrefix, Logger logger) {
         return Thread.ofPlatform()
                 .name(namePrefix, 1)
@@ -0,0 +1,223 @@
+package dev.enola.common.concurrent;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Timer with O(1) {@link #schedule(Runnable, Duration)} and {@link Timeout#cancel()}, for very many
+ * timeouts which are mostly cancelled before they expire.
+ *
+ * <p>This is a "Hashed Timing Wheel", as described by George Varghese and Tony Lauck in their
+ * paper <a href="http://www.cs.columbia.edu/~nahum/w6998/papers/sosp87-timing-wheels.pdf">"Hashed
+ * and Hierarchical Timing Wheels"</a>, similar to e.g. Netty's <code>HashedWheelTimer</code>. It
+ * is much cheaper than a {@link ScheduledExecutorService} (which is a heap, and keeps cancelled
+ * entries until they are due), but only fires with a precision of one tick.
+ *
+ * <p>The wheel is only ever touched by a single "ticker" thread; other threads just hand over new
+ * and cancelled timeouts through lock-free queues. Timeout actions are run on that thread as well,
+ * and must thus be fast, and never block; unless an {@link Executor} for them is given, to which
+ * the ticker then only hands them over.
+ */
+public final class HashedWheelTimer implements AutoCloseable {
+
+    private final Logger logger;
+    private final /*TODO @Nullable*/ Executor actions;
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Entry> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Entry> cancelled = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService ticker;
+    // When the ticker started, i.e. of tick 0; deadlines are relative to it
+    private static final long NOT_STARTED = Long.MIN_VALUE;
+    private volatile long startNanos = NOT_STARTED;
+    private long tick; // only accessed by the ticker thread
+
+    /** Handle to a scheduled action, see {@link HashedWheelTimer#schedule(Runnable, Duration)}. */
+    public interface Timeout {
+
+        /**
+         * Cancels this timeout, so that its action will not run (anymore).
+         *
+         * @return true if cancelled, false if it already expired (or was cancelled before)
+         */
+        boolean cancel();
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param name of the ticker thread
+     * @param logger for exceptions thrown by actions
+     * @param tick duration, i.e. precision
+     * @param ticksPerWheel number of buckets (rounded up to a power of 2); ideally tick times this
+     *     is longer than most timeouts
+     */
+    public HashedWheelTimer(String name, Logger logger, Duration tick, int ticksPerWheel) {
+        this(name, logger, tick, ticksPerWheel, null);
+    }
+
+    /**
+     * Constructor, for actions which may be slow, or block.
+     *
+     * @param actions runs the timeout actions, instead of the ticker thread
+     * @see #HashedWheelTimer(String, Logger, Duration, int)
+     */
+    public HashedWheelTimer(
+            String name,
+            Logger logger,
+            Duration tick,
+            int ticksPerWheel,
+            /*TODO @Nullable*/ Executor actions) {
+        if (tick.isNegative() || tick.isZero())
+            throw new IllegalArgumentException("tick must be positive: " + tick);
+        if (ticksPerWheel < 1 || ticksPerWheel > 1 << 30)
+            throw new IllegalArgumentException("ticksPerWheel out of range: " + ticksPerWheel);
+
+        this.logger = logger;
+        this.actions = actions;
+        this.tickNanos = tick.toNanos();
+        var size = 1;
+        while (size < ticksPerWheel) size <<= 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) wheel[i] = new Bucket();
+        this.mask = size - 1;
+        this.ticker = Executors.newSingleThreadScheduledExecutor(name, logger);
+    }
+
+    /**
+     * Schedules an action to run (once) after the given delay, but not before.
+     *
+     * @return handle which can be used to cancel it
+     */
+    public Timeout schedule(Runnable action, Duration delay) {
+        var start = startNanos;
+        if (start == NOT_STARTED) start = start();
+
+        var deadline = System.nanoTime() - start + Math.max(0, delay.toNanos());
+        var entry = new Entry(action, deadline);
+        added.add(entry);
+        return entry;
+    }
+
+    // The ticker is only started when it is first needed, so that idle timers have no thread
+    private synchronized long start() {
+        if (startNanos == NOT_STARTED) {
+            startNanos = System.nanoTime();
+            ticker.scheduleAtFixedRate(this::tick, tickNanos, tickNanos, NANOSECONDS);
+        }
+        return startNanos;
+    }
+
+    private void tick() {
+        for (Entry entry; (entry = cancelled.poll()) != null; ) {
+            if (entry.bucket != null) entry.bucket.remove(entry);
+        }
+
+        for (Entry entry; (entry = added.poll()) != null; ) {
+            if (entry.state.get() != Entry.WAITING) continue;
+            // Never earlier than the current tick, in case the ticker fell behind
+            var ticks = Math.max(entry.deadline / tickNanos, tick);
+            entry.rounds = (ticks - tick) / wheel.length;
+            wheel[(int) (ticks & mask)].add(entry);
+        }
+
+        var bucket = wheel[(int) (tick & mask)];
+        for (var entry = bucket.head; entry != null; ) {
+            var next = entry.next;
+            if (entry.rounds <= 0) {
+                bucket.remove(entry);
+                entry.expire();
+            } else entry.rounds--;
+            entry = next;
+        }
+        tick++;
+    }
+
+    private final class Entry implements Timeout {
+        private static final int WAITING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable action;
+        private final long deadline; // relative to startNanos
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        // Only accessed by the ticker thread
+        private long rounds;
+        private Bucket bucket;
+        private Entry prev;
+        private Entry next;
+
+        private Entry(Runnable action, long deadline) {
+            this.action = action;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!state.compareAndSet(WAITING, CANCELLED)) return false;
+            cancelled.add(this);
+            return true;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(WAITING, EXPIRED)) return;
+            if (actions == null) run();
+            else {
+                try {
+                    actions.execute(this::run);
+                } catch (RejectedExecutionException e) {
+                    logger.log(Level.FINE, "Timeout action rejected, e.g. when closing", e);
+                }
+            }
+        }
+
+        private void run() {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                logger.log(Level.SEVERE, "Timeout action failed", e);
+            }
+        }
+    }
+
+    // Doubly linked list, for O(1) removal
+    private static final class Bucket {
+        private Entry head;
+        private Entry tail;
+
+        private void add(Entry entry) {
+            entry.bucket = this;
+            if (head == null) head = tail = entry;
+            else {
+                tail.next = entry;
+                entry.prev = tail;
+                tail = entry;
+            }
+        }
+
+        private void remove(Entry entry) {
+            if (entry.prev != null) entry.prev.next = entry.next;
+            else head = entry.next;
+            if (entry.next != null) entry.next.prev = entry.prev;
+            else tail = entry.prev;
+            entry.prev = entry.next = null;
+            entry.bucket = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        ticker.close();
+    }
+}
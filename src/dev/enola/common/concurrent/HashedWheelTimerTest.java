@@ -0,0 +1,101 @@
+package dev.enola.common.concurrent;
+
+import static ch.vorburger.test.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+public class HashedWheelTimerTest {
+
+    private static final Logger LOG = Logger.getLogger(HashedWheelTimerTest.class.getName());
+
+    public static void main(String[] args) throws Exception {
+        testExpires();
+        testCancel();
+        testManyRounds();
+        testIdleBeforeFirstSchedule();
+        testBlockingActionOnExecutor();
+    }
+
+    private static HashedWheelTimer newTimer() {
+        return new HashedWheelTimer("HashedWheelTimerTest", LOG, Duration.ofMillis(1), 8);
+    }
+
+    private static void testExpires() throws Exception {
+        try (var timer = newTimer()) {
+            var latch = new CountDownLatch(1);
+            var start = System.nanoTime();
+            timer.schedule(latch::countDown, Duration.ofMillis(20));
+            assertTrue(latch.await(5, TimeUnit.SECONDS), "Timeout did not expire");
+            var elapsed = Duration.ofNanos(System.nanoTime() - start);
+            assertTrue(elapsed.toMillis() >= 20, "Expired too early, after " + elapsed);
+        }
+    }
+
+    private static void testCancel() throws Exception {
+        try (var timer = newTimer()) {
+            var expired = new AtomicInteger();
+            var timeouts = new ArrayList<HashedWheelTimer.Timeout>();
+            for (int i = 0; i < 1000; i++)
+                timeouts.add(timer.schedule(expired::incrementAndGet, Duration.ofMillis(30)));
+            for (var timeout : timeouts) assertTrue(timeout.cancel(), "Should cancel");
+            for (var timeout : timeouts) assertTrue(!timeout.cancel(), "Should not cancel again");
+
+            var latch = new CountDownLatch(1);
+            var last = timer.schedule(latch::countDown, Duration.ofMillis(60));
+            assertTrue(latch.await(5, TimeUnit.SECONDS), "Timeout did not expire");
+            assertTrue(!last.cancel(), "Expired timeout should not cancel");
+            assertTrue(expired.get() == 0, "Cancelled timeouts expired: " + expired);
+        }
+    }
+
+    private static void testManyRounds() throws Exception {
+        try (var timer = newTimer()) {
+            // 8 ticks of 1ms per wheel, so this goes around the wheel several times
+            var latch = new CountDownLatch(3);
+            for (var millis : new int[] {5, 25, 50})
+                timer.schedule(latch::countDown, Duration.ofMillis(millis));
+            assertTrue(latch.await(5, TimeUnit.SECONDS), "Timeouts did not all expire");
+        }
+    }
+
+    // Ticks are counted from when the ticker starts, not from when the timer was created
+    private static void testIdleBeforeFirstSchedule() throws Exception {
+        try (var timer = newTimer()) {
+            Thread.sleep(500);
+            var latch = new CountDownLatch(1);
+            var start = System.nanoTime();
+            timer.schedule(latch::countDown, Duration.ofMillis(50));
+            assertTrue(latch.await(5, TimeUnit.SECONDS), "Timeout did not expire");
+            var elapsed = Duration.ofNanos(System.nanoTime() - start);
+            assertTrue(elapsed.toMillis() >= 50, "Expired too early, after " + elapsed);
+            assertTrue(elapsed.toMillis() < 400, "Expired too late, after " + elapsed);
+        }
+    }
+
+    private static void testBlockingActionOnExecutor() throws Exception {
+        try (var actions = Executors.newVirtualThreadPerTaskExecutor(LOG);
+                var timer =
+                        new HashedWheelTimer(
+                                "HashedWheelTimerTest", LOG, Duration.ofMillis(1), 8, actions)) {
+            var release = new CountDownLatch(1);
+            timer.schedule(
+                    () -> {
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    },
+                    Duration.ofMillis(5));
+            var latch = new CountDownLatch(1);
+            timer.schedule(latch::countDown, Duration.ofMillis(20));
+            assertTrue(latch.await(5, TimeUnit.SECONDS), "Blocked by the other action");
+            release.countDown();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package dev.enola.common.concurrent;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded lock-free queue for many producer threads, but only a single consumer thread.
+ *
+ * <p>Unlike an {@link java.util.concurrent.ArrayBlockingQueue}, producers and the consumer do not
+ * contend for a lock: producers claim a slot with a single CAS of the tail, and then publish their
+ * item by setting the sequence number of the slot; the consumer takes items just by reading those,
+ * and then releases their slots again, as many as there are at once, with {@link #drain(Consumer,
+ * int)}. (This is Dmitry Vyukov's bounded queue, with a consumer which does not need a CAS.)
+ *
+ * <p>It never blocks; a consumer which wants to wait for items can e.g. park, if {@link
+ * #isEmpty()}, and have producers unpark it after each {@link #offer(Object)}.
+ */
+public final class MpscRingBuffer<T> {
+
+    private final Object[] items;
+    // Per slot: the position for which a producer can claim it, +1 once that producer published
+    // its item in it; and the position of the next round around the ring once it was consumed
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private long head; // only accessed by the consumer
+
+    public MpscRingBuffer(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be positive");
+        items = new Object[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) sequences.set(i, i);
+    }
+
+    public int capacity() {
+        return items.length;
+    }
+
+    /**
+     * Adds the item, unless the buffer is full; can be called by any thread.
+     *
+     * @return whether it was added
+     */
+    public boolean offer(T item) {
+        requireNonNull(item, "item");
+        while (true) {
+            var position = tail.get();
+            var slot = slot(position);
+            var sequence = sequences.get(slot);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    items[slot] = item;
+                    // Volatile (not just release), so that a consumer which checked isEmpty()
+                    // before it parked is seen by the producer's subsequent volatile read
+                    sequences.set(slot, position + 1);
+                    return true;
+                }
+            } else if (sequence < position) {
+                // The consumer has not yet released the slot from the previous round
+                return false;
+            }
+            // Else another producer claimed the slot meanwhile; try the next one
+        }
+    }
+
+    /** Whether there is no (published) item; must only be called by the consumer thread. */
+    public boolean isEmpty() {
+        return sequences.get(slot(head)) != head + 1;
+    }
+
+    /**
+     * Takes up to max items, in the order in which they were added, and passes them to the
+     * consumer; must only be called by a single thread at a time. Items which producers did not
+     * finish adding yet are left for the next call.
+     *
+     * <p>If the consumer throws, the item it was passed is lost, but all others are kept.
+     *
+     * @return how many items were taken
+     */
+    @SuppressWarnings("unchecked")
+    public int drain(Consumer<? super T> consumer, int max) {
+        int drained = 0;
+        while (drained < max) {
+            var slot = slot(head);
+            if (sequences.get(slot) != head + 1) break;
+            var item = (T) items[slot];
+            items[slot] = null;
+            sequences.lazySet(slot, head + items.length);
+            head++;
+            drained++;
+            consumer.accept(item);
+        }
+        return drained;
+    }
+
+    private int slot(long position) {
+        return (int) (position % items.length);
+    }
+}
@@ -0,0 +1,81 @@
+package dev.enola.common.concurrent;
+
+import static ch.vorburger.test.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+public class MpscRingBufferTest {
+
+    public static void main(String[] args) throws Exception {
+        testOfferDrain();
+        testWrapAround();
+        testConcurrent();
+    }
+
+    private static void testOfferDrain() {
+        var buffer = new MpscRingBuffer<String>(3);
+        assertTrue(buffer.isEmpty(), "Should be empty");
+        assertTrue(buffer.offer("a") && buffer.offer("b") && buffer.offer("c"), "Should offer");
+        assertTrue(!buffer.offer("d"), "Should be full");
+
+        var drained = new ArrayList<String>();
+        assertTrue(buffer.drain(drained::add, 2) == 2, "Should drain max");
+        assertTrue(drained.equals(List.of("a", "b")), "Drained: " + drained);
+        assertTrue(buffer.offer("e"), "Should have room again");
+        assertTrue(buffer.drain(drained::add, 10) == 2, "Should drain rest");
+        assertTrue(drained.equals(List.of("a", "b", "c", "e")), "Drained: " + drained);
+        assertTrue(buffer.isEmpty(), "Should be empty again");
+        assertTrue(buffer.drain(drained::add, 10) == 0, "Nothing to drain");
+    }
+
+    private static void testWrapAround() {
+        var buffer = new MpscRingBuffer<Integer>(2);
+        var drained = new ArrayList<Integer>();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(buffer.offer(i), "offer " + i);
+            buffer.drain(drained::add, 1);
+        }
+        for (int i = 0; i < 1000; i++) assertTrue(drained.get(i) == i, "drained " + i);
+    }
+
+    // Each producer's items must arrive in its order, and none may be lost or duplicated
+    private static void testConcurrent() throws Exception {
+        int producers = 4;
+        int perProducer = 50_000;
+        var buffer = new MpscRingBuffer<long[]>(64);
+        var threads = new ArrayList<Thread>();
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            threads.add(
+                    Thread.ofPlatform()
+                            .start(
+                                    () -> {
+                                        for (long i = 0; i < perProducer; i++) {
+                                            var item = new long[] {producer, i};
+                                            // Not spinning, the consumer may not get a core
+                                            while (!buffer.offer(item))
+                                                LockSupport.parkNanos(10_000);
+                                        }
+                                    }));
+        }
+
+        var next = new long[producers];
+        long total = 0;
+        while (total < (long) producers * perProducer) {
+            total +=
+                    buffer.drain(
+                            item -> {
+                                var producer = (int) item[0];
+                                assertTrue(
+                                        item[1] == next[producer],
+                                        "producer " + producer + " item " + item[1]);
+                                next[producer]++;
+                            },
+                            16);
+        }
+        for (var thread : threads) thread.join();
+        assertTrue(buffer.isEmpty(), "Should be empty");
+    }
+}
@@ -11,6 +11,8 @@ find src \( -name '*Test.java' -o -name 'Test*.java' \) -print0 \
   | xargs -0 javac -cp .build/classes -d .build/test-classes
 
 java -cp .build/classes:.build/test-classes:src dev.enola.be.io.FileSetTest
+java -cp .build/classes:.build/test-classes dev.enola.be.io.ChannelLineWriterTest
+java -cp .build/classes:.build/test-classes dev.enola.be.io.NonBlockingLineWriterTest
 
 java -cp .build/classes:.build/test-classes:src ch.vorburger.main.test.ExampleTest
 
@@ -19,9 +21,24 @@ java -cp .build/classes:.build/test-classes:src ch.vorburger.jvmtools.Sourcepath
 java -cp .build/classes:.build/test-classes:src ch.vorburger.jvmtools.JavaCompilerTest
 java -cp .build/classes:.build/test-classes:src ch.vorburger.jvmtools.Bootstrap
 
+java -cp .build/classes:.build/test-classes dev.enola.common.concurrent.HashedWheelTimerTest
+java -cp .build/classes:.build/test-classes dev.enola.common.concurrent.ConcurrentLongMapTest
+java -cp .build/classes:.build/test-classes dev.enola.common.concurrent.CoalescingPublisherTest
+java -cp .build/classes:.build/test-classes dev.enola.common.concurrent.MpscRingBufferTest
+
 java -cp .build/classes:.build/test-classes dev.enola.be.task.StatusTest
 java -cp .build/classes:.build/test-classes dev.enola.be.task.TaskTest
 java -cp .build/classes:.build/test-classes dev.enola.be.task.TaskExecutorTest
+java -cp .build/classes:.build/test-classes dev.enola.be.task.TasksTest
+java -cp .build/classes:.build/test-classes dev.enola.be.task.TaskEventsTest
+java -cp .build/classes:.build/test-classes dev.enola.be.task.FileTaskStoreTest
+java -cp .build/classes:.build/test-classes dev.enola.be.task.TaskLogsTest
+java -cp .build/classes:.build/test-classes dev.enola.be.task.TaskConsoleTest
+java -cp .build/classes:.build/test-classes dev.enola.be.task.ActionCacheTest
+java -cp .build/classes:.build/test-classes dev.enola.be.task.WorkerPoolTest
+
+java -cp .build/classes dev.enola.be.task.TaskExecutorBenchmark --quick
+java -cp .build/classes dev.enola.be.io.NonBlockingLineWriterBenchmark --quick
 
 if command -v pre-commit &> /dev/null
 then